@@ -0,0 +1,96 @@
+package com.supermarket.coupon_market_service.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.supermarket.coupon_market_service.dto.request.ApplyCouponRequest;
+import com.supermarket.coupon_market_service.dto.response.ApplyCouponResponse;
+import com.supermarket.coupon_market_service.dto.response.ProductResponse;
+import com.supermarket.coupon_market_service.engine.CouponRuleEngine;
+import com.supermarket.coupon_market_service.service.CouponService;
+import com.supermarket.coupon_market_service.service.ProductCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Toàn bộ CouponService.applyCoupons: WebClient được thay bằng ExchangeFunction trả JSON dựng sẵn,
+ * nên số đo gồm cả decode danh sách sản phẩm nhưng không có mạng.
+ * productCacheHit=false xoá near-cache trước mỗi lần gọi để đo đường fetch + decode.
+ * Đo allocation rate bằng: java -jar target/benchmarks.jar ApplyCouponsBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class ApplyCouponsBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    int couponCount;
+
+    @Param({"1", "20", "200"})
+    int basketSize;
+
+    @Param({"EXACT", "PREFIX", "INFIX"})
+    CouponFixtures.PatternMix patternMix;
+
+    @Param({"true", "false"})
+    boolean productCacheHit;
+
+    private ProductCache productCache;
+    private CouponService couponService;
+    private ApplyCouponRequest[] requests;
+    private String[] productJson;
+    private int current;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        List<ProductResponse> catalog = CouponFixtures.catalog();
+        CouponRuleEngine engine = new CouponRuleEngine(
+                CouponFixtures.repository(CouponFixtures.coupons(catalog, couponCount, patternMix)),
+                new ObjectMapper());
+        engine.refresh();
+
+        ObjectMapper jsonMapper = JsonMapper.builder().findAndAddModules().build();
+        List<List<ProductResponse>> baskets = CouponFixtures.baskets(catalog, basketSize);
+        requests = new ApplyCouponRequest[baskets.size()];
+        productJson = new String[baskets.size()];
+        for (int i = 0; i < baskets.size(); i++) {
+            ApplyCouponRequest request = new ApplyCouponRequest();
+            request.setProductIds(baskets.get(i).stream().map(ProductResponse::getId).toList());
+            request.setCardNumber(CouponFixtures.CARD_NUMBER);
+            requests[i] = request;
+            productJson[i] = jsonMapper.writeValueAsString(baskets.get(i));
+        }
+
+        // Product service giả: trả về đúng giỏ hàng đang được đo
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .exchangeFunction(clientRequest -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(productJson[current])
+                        .build()));
+        productCache = new ProductCache(CouponFixtures.CATALOG_SIZE, Duration.ofHours(1));
+        couponService = new CouponService(null, engine, null, productCache, webClientBuilder,
+                "http://product-service.stub/api");
+    }
+
+    @Benchmark
+    public ApplyCouponResponse applyCoupons() {
+        current = next++ & (CouponFixtures.BASKET_COUNT - 1);
+        if (!productCacheHit) {
+            productCache.invalidateAll();
+        }
+        return couponService.applyCoupons(requests[current]);
+    }
+}
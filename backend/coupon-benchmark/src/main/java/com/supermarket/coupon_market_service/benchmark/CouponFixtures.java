@@ -0,0 +1,151 @@
+package com.supermarket.coupon_market_service.benchmark;
+
+import com.supermarket.coupon_market_service.dto.response.ProductResponse;
+import com.supermarket.coupon_market_service.model.Coupon;
+import com.supermarket.coupon_market_service.model.CouponType;
+import com.supermarket.coupon_market_service.repository.CouponRepository;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Dữ liệu giả cho benchmark: danh mục sản phẩm, coupon theo từng kiểu pattern và giỏ hàng.
+ * Seed cố định để các lần chạy so sánh được với nhau.
+ */
+final class CouponFixtures {
+    static final int CATALOG_SIZE = 5_000;
+    static final int BASKET_COUNT = 64;
+    static final String CARD_NUMBER = "GCARD00042";
+
+    private static final String[] PREFIXES = {
+            "SUA", "BMI", "NUO", "KEO", "BIA", "GAO", "DAU", "MUO", "TRA", "CAF",
+            "BAN", "MIG", "RAU", "THI", "CAH", "TRU", "XAP", "GIA", "KHA", "NEM"
+    };
+
+    enum PatternMix {
+        // applicableProductCodes liệt kê mã cụ thể, combo dùng mã chính xác
+        EXACT,
+        // "SUA01*": tra bằng trie
+        PREFIX,
+        // "*012*": rơi vào nhánh regex
+        INFIX
+    }
+
+    private CouponFixtures() {
+    }
+
+    static List<ProductResponse> catalog() {
+        List<ProductResponse> products = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String code = PREFIXES[i % PREFIXES.length] + String.format("%04d", i / PREFIXES.length);
+            products.add(ProductResponse.builder()
+                    .id(String.valueOf(i))
+                    .name("Product " + code)
+                    .productCode(code)
+                    .price(BigDecimal.valueOf(5_000 + (i % 200) * 500L))
+                    .stockQuantity(100)
+                    .build());
+        }
+        return products;
+    }
+
+    static List<List<ProductResponse>> baskets(List<ProductResponse> catalog, int basketSize) {
+        Random random = new Random(7);
+        List<List<ProductResponse>> baskets = new ArrayList<>(BASKET_COUNT);
+        for (int b = 0; b < BASKET_COUNT; b++) {
+            List<ProductResponse> basket = new ArrayList<>(basketSize);
+            for (int i = 0; i < basketSize; i++) {
+                basket.add(catalog.get(random.nextInt(catalog.size())));
+            }
+            baskets.add(basket);
+        }
+        return baskets;
+    }
+
+    // 80% PRODUCT, 10% COMBO, 5% TOTAL, 4% CUSTOMER, 1% HOLIDAY
+    static List<Coupon> coupons(List<ProductResponse> catalog, int count, PatternMix mix) {
+        Random random = new Random(42);
+        List<Coupon> coupons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int bucket = i % 100;
+            Coupon coupon = new Coupon();
+            coupon.setId((long) i);
+            coupon.setName("Coupon " + i);
+            coupon.setAmount(BigDecimal.valueOf(1_000 + random.nextInt(50) * 100L));
+
+            if (bucket < 80) {
+                coupon.setType(CouponType.PRODUCT);
+                if (mix == PatternMix.EXACT) {
+                    coupon.setApplicableProductCodes(jsonArray(randomCodes(catalog, random, 3)));
+                } else {
+                    coupon.setProductCodePattern(pattern(catalog, random, mix));
+                }
+            } else if (bucket < 90) {
+                coupon.setType(CouponType.COMBO);
+                List<String> requirements = mix == PatternMix.EXACT
+                        ? randomCodes(catalog, random, 2)
+                        : List.of(pattern(catalog, random, mix), pattern(catalog, random, mix));
+                coupon.setComboProductCodes(jsonArray(requirements));
+            } else if (bucket < 95) {
+                coupon.setType(CouponType.TOTAL);
+                coupon.setMinOrderAmount(BigDecimal.valueOf(random.nextInt(500) * 1_000L));
+                if (random.nextBoolean()) {
+                    coupon.setPercentageDiscount(BigDecimal.valueOf(1 + random.nextInt(10)));
+                }
+            } else if (bucket < 99) {
+                coupon.setType(CouponType.CUSTOMER);
+                coupon.setCardPattern(jsonArray(List.of(random.nextBoolean() ? "GCARD*" : "SCARD*")));
+            } else {
+                coupon.setType(CouponType.HOLIDAY);
+                coupon.setHolidayStartDate(LocalDate.now().minusDays(1));
+                coupon.setHolidayEndDate(LocalDate.now().plusDays(1));
+            }
+            coupons.add(coupon);
+        }
+        return coupons;
+    }
+
+    // Repository giả: chỉ trả danh sách coupon dựng sẵn, các method JPA khác không được dùng tới
+    static CouponRepository repository(List<Coupon> coupons) {
+        return (CouponRepository) Proxy.newProxyInstance(
+                CouponRepository.class.getClassLoader(),
+                new Class<?>[]{CouponRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllActiveCoupons" -> coupons;
+                    case "toString" -> "StubCouponRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static String pattern(List<ProductResponse> catalog, Random random, PatternMix mix) {
+        String code = catalog.get(random.nextInt(catalog.size())).getProductCode();
+        return switch (mix) {
+            case EXACT -> code;
+            case PREFIX -> code.substring(0, 5) + "*";
+            case INFIX -> "*" + code.substring(4, 7) + "*";
+        };
+    }
+
+    private static List<String> randomCodes(List<ProductResponse> catalog, Random random, int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(catalog.get(random.nextInt(catalog.size())).getProductCode());
+        }
+        return codes;
+    }
+
+    private static String jsonArray(List<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(values.get(i)).append('"');
+        }
+        return json.append(']').toString();
+    }
+}
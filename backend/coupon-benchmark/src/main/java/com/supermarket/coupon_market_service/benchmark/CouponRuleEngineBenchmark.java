@@ -0,0 +1,67 @@
+package com.supermarket.coupon_market_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.coupon_market_service.dto.response.CouponDetail;
+import com.supermarket.coupon_market_service.dto.response.ProductResponse;
+import com.supermarket.coupon_market_service.engine.CouponRuleEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí chọn coupon cho một giỏ hàng trên snapshot đã biên dịch (không tính HTTP, không tính DB).
+ * Đo allocation rate bằng: java -jar target/benchmarks.jar CouponRuleEngineBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class CouponRuleEngineBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int couponCount;
+
+    @Param({"1", "20", "200"})
+    int basketSize;
+
+    @Param({"EXACT", "PREFIX", "INFIX"})
+    CouponFixtures.PatternMix patternMix;
+
+    private CouponRuleEngine engine;
+    private List<List<ProductResponse>> baskets;
+    private BigDecimal[] totals;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ProductResponse> catalog = CouponFixtures.catalog();
+        engine = new CouponRuleEngine(
+                CouponFixtures.repository(CouponFixtures.coupons(catalog, couponCount, patternMix)),
+                new ObjectMapper());
+        engine.refresh();
+
+        baskets = CouponFixtures.baskets(catalog, basketSize);
+        totals = baskets.stream()
+                .map(basket -> basket.stream().map(ProductResponse::getPrice).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .toArray(BigDecimal[]::new);
+    }
+
+    @Benchmark
+    public List<CouponDetail> evaluate() {
+        int i = next++ & (CouponFixtures.BASKET_COUNT - 1);
+        return engine.evaluate(baskets.get(i), totals[i], CouponFixtures.CARD_NUMBER);
+    }
+
+    // Dựng lại snapshot: chi phí mỗi lần tạo/sửa/xoá coupon hoặc refresh định kỳ
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CouponRuleEngine refresh() {
+        engine.refresh();
+        return engine;
+    }
+}
@@ -49,4 +49,11 @@ public class CouponController {
         ApplyCouponResponse response = couponService.applyCoupons(request);
         return ResponseEntity.ok(response);
     }
+
+    // Gọi từ product-market-service khi sản phẩm được sửa/xoá
+    @PostMapping("/products/invalidate")
+    public ResponseEntity<Void> invalidateProducts(@RequestBody List<String> productIds) {
+        couponService.invalidateProducts(productIds);
+        return ResponseEntity.noContent().build();
+    }
 }
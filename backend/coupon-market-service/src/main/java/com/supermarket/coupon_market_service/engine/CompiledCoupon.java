@@ -0,0 +1,35 @@
+package com.supermarket.coupon_market_service.engine;
+
+import com.supermarket.coupon_market_service.model.Coupon;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coupon đã được parse JSON và biên dịch wildcard sẵn, chỉ đọc sau khi tạo.
+ */
+@Getter
+@AllArgsConstructor
+public class CompiledCoupon {
+    private final Coupon coupon;
+
+    // COMBO: mỗi mã yêu cầu phải khớp ít nhất một sản phẩm trong giỏ
+    private final List<WildcardPattern> comboPatterns;
+
+    // PRODUCT: danh sách mã cụ thể và/hoặc pattern (có thể null)
+    private final Set<String> applicableProductCodes;
+    private final WildcardPattern productCodePattern;
+
+    // CUSTOMER: thẻ cụ thể (đã chuẩn hoá) và pattern thẻ
+    private final Set<String> eligibleCards;
+    private final List<WildcardPattern> cardPatterns;
+
+    public boolean matchesCard(String normalizedCardNumber) {
+        if (eligibleCards.contains(normalizedCardNumber)) {
+            return true;
+        }
+        return cardPatterns.stream().anyMatch(pattern -> pattern.matches(normalizedCardNumber));
+    }
+}
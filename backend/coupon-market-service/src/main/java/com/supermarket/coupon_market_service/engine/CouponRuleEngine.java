@@ -0,0 +1,355 @@
+package com.supermarket.coupon_market_service.engine;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.coupon_market_service.dto.response.CouponDetail;
+import com.supermarket.coupon_market_service.dto.response.ProductResponse;
+import com.supermarket.coupon_market_service.model.Coupon;
+import com.supermarket.coupon_market_service.model.CouponType;
+import com.supermarket.coupon_market_service.repository.CouponRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giữ toàn bộ coupon đang hoạt động trong bộ nhớ, đã parse và biên dịch sẵn, chia theo CouponType.
+ * Snapshot là bất biến và được thay thế nguyên tử (copy-on-write) khi coupon thay đổi,
+ * khi sang ngày mới, hoặc theo chu kỳ refresh (để đồng bộ giữa nhiều instance).
+ */
+@Slf4j
+@Component
+public class CouponRuleEngine {
+    private final CouponRepository couponRepository;
+    private final ObjectMapper objectMapper;
+
+    // ReentrantLock thay cho synchronized: refresh đọc DB, synchronized sẽ ghim carrier thread của virtual thread (Java 21)
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile CouponSnapshot snapshot;
+
+    public CouponRuleEngine(CouponRepository couponRepository, ObjectMapper objectMapper) {
+        this.couponRepository = couponRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    record CouponSnapshot(LocalDate date,
+                          Map<CouponType, List<CompiledCoupon>> couponsByType,
+                          ProductCodeIndex<Integer> productIndex,
+                          ProductCodeIndex<ComboRequirement> comboIndex) {
+        List<CompiledCoupon> ofType(CouponType type) {
+            return couponsByType.getOrDefault(type, List.of());
+        }
+    }
+
+    // Mã thứ requirementIndex của coupon COMBO thứ couponIndex
+    record ComboRequirement(int couponIndex, int requirementIndex) {
+    }
+
+    // Build lại snapshot từ DB
+    @Scheduled(fixedDelayString = "${coupon.engine.refresh-interval-ms:60000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            rebuildSnapshot();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void rebuildSnapshot() {
+        LocalDate today = LocalDate.now();
+        List<Coupon> activeCoupons = couponRepository.findAllActiveCoupons(today);
+
+        Map<CouponType, List<CompiledCoupon>> couponsByType = new EnumMap<>(CouponType.class);
+        for (Coupon coupon : activeCoupons) {
+            if (coupon.getType() == null) continue;
+            compile(coupon).ifPresent(compiled ->
+                    couponsByType.computeIfAbsent(coupon.getType(), type -> new ArrayList<>()).add(compiled));
+        }
+        couponsByType.replaceAll((type, coupons) -> List.copyOf(coupons));
+
+        snapshot = new CouponSnapshot(today,
+                Collections.unmodifiableMap(couponsByType),
+                buildProductIndex(couponsByType.getOrDefault(CouponType.PRODUCT, List.of())),
+                buildComboIndex(couponsByType.getOrDefault(CouponType.COMBO, List.of())));
+        log.debug("Coupon rule engine rebuilt for {}: {} active coupons", today, activeCoupons.size());
+    }
+
+    private ProductCodeIndex<Integer> buildProductIndex(List<CompiledCoupon> productCoupons) {
+        ProductCodeIndex<Integer> index = new ProductCodeIndex<>();
+        for (int i = 0; i < productCoupons.size(); i++) {
+            CompiledCoupon coupon = productCoupons.get(i);
+            for (String code : coupon.getApplicableProductCodes()) {
+                index.addExact(code, i);
+            }
+            if (coupon.getProductCodePattern() != null) {
+                index.add(coupon.getProductCodePattern(), i);
+            }
+        }
+        return index;
+    }
+
+    private ProductCodeIndex<ComboRequirement> buildComboIndex(List<CompiledCoupon> comboCoupons) {
+        ProductCodeIndex<ComboRequirement> index = new ProductCodeIndex<>();
+        for (int i = 0; i < comboCoupons.size(); i++) {
+            List<WildcardPattern> requirements = comboCoupons.get(i).getComboPatterns();
+            for (int j = 0; j < requirements.size(); j++) {
+                index.add(requirements.get(j), new ComboRequirement(i, j));
+            }
+        }
+        return index;
+    }
+
+    private CouponSnapshot currentSnapshot() {
+        CouponSnapshot current = snapshot;
+        if (current == null || !current.date().equals(LocalDate.now())) {
+            refreshLock.lock();
+            try {
+                current = snapshot;
+                if (current == null || !current.date().equals(LocalDate.now())) {
+                    rebuildSnapshot();
+                    current = snapshot;
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    // Áp dụng logic chọn coupon cho một giỏ hàng
+    public List<CouponDetail> evaluate(List<ProductResponse> products, BigDecimal originalTotal, String cardNumber) {
+        CouponSnapshot current = currentSnapshot();
+        List<CouponDetail> appliedCoupons = new ArrayList<>();
+
+        // COMBO - chọn giá trị cao nhất
+        findBestComboCoupon(products, current.ofType(CouponType.COMBO), current.comboIndex())
+                .ifPresent(appliedCoupons::add);
+
+        // TOTAL - chọn giá trị cao nhất
+        findBestTotalCoupon(originalTotal, current.ofType(CouponType.TOTAL))
+                .ifPresent(appliedCoupons::add);
+
+        // HOLIDAY - chọn giá trị cao nhất
+        findBestHolidayCoupon(current.ofType(CouponType.HOLIDAY))
+                .ifPresent(appliedCoupons::add);
+
+        // CUSTOMER - chọn giá trị cao nhất
+        findBestCustomerCoupon(cardNumber, originalTotal, current.ofType(CouponType.CUSTOMER))
+                .ifPresent(appliedCoupons::add);
+
+        // PRODUCT - áp dụng TẤT CẢ sản phẩm thỏa mãn
+        appliedCoupons.addAll(findAllProductCoupons(products, current.ofType(CouponType.PRODUCT), current.productIndex()));
+
+        return appliedCoupons;
+    }
+
+    // Tìm coupon COMBO tốt nhất: mỗi mã sản phẩm tra trie một lần, đánh dấu các yêu cầu đã thỏa
+    private Optional<CouponDetail> findBestComboCoupon(List<ProductResponse> products, List<CompiledCoupon> coupons,
+                                                       ProductCodeIndex<ComboRequirement> comboIndex) {
+        if (coupons.isEmpty()) return Optional.empty();
+
+        Set<ComboRequirement> satisfied = new HashSet<>();
+        int[] satisfiedCount = new int[coupons.size()];
+        products.stream()
+                .map(ProductResponse::getProductCode)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(code -> {
+                    for (ComboRequirement requirement : comboIndex.lookup(code)) {
+                        if (satisfied.add(requirement)) {
+                            satisfiedCount[requirement.couponIndex()]++;
+                        }
+                    }
+                });
+
+        Coupon best = null;
+        for (int i = 0; i < coupons.size(); i++) {
+            int required = coupons.get(i).getComboPatterns().size();
+            if (required == 0 || satisfiedCount[i] < required) continue;
+
+            Coupon coupon = coupons.get(i).getCoupon();
+            if (best == null || coupon.getAmount().compareTo(best.getAmount()) > 0) {
+                best = coupon;
+            }
+        }
+        return Optional.ofNullable(best).map(this::toCouponDetail);
+    }
+
+    // Tìm coupon TOTAL tốt nhất
+    private Optional<CouponDetail> findBestTotalCoupon(BigDecimal totalAmount, List<CompiledCoupon> coupons) {
+        return coupons.stream()
+                .map(CompiledCoupon::getCoupon)
+                .filter(c -> isMinOrderReached(totalAmount, c))
+                .max(Comparator.comparing(this::calculateFixedDiscount))
+                .map(c -> toCouponDetailWithCalculatedAmount(c, totalAmount));
+    }
+
+    // Tìm coupon HOLIDAY tốt nhất
+    private Optional<CouponDetail> findBestHolidayCoupon(List<CompiledCoupon> coupons) {
+        LocalDate now = LocalDate.now();
+        return coupons.stream()
+                .map(CompiledCoupon::getCoupon)
+                .filter(c -> isHolidayApplicable(now, c))
+                .max(Comparator.comparing(Coupon::getAmount))
+                .map(this::toCouponDetail);
+    }
+
+    private boolean isHolidayApplicable(LocalDate now, Coupon coupon) {
+        return (coupon.getHolidayStartDate() == null || !now.isBefore(coupon.getHolidayStartDate())) &&
+                (coupon.getHolidayEndDate() == null || !now.isAfter(coupon.getHolidayEndDate()));
+    }
+
+    // Tìm coupon CUSTOMER tốt nhất
+    private Optional<CouponDetail> findBestCustomerCoupon(String cardNumber, BigDecimal totalAmount, List<CompiledCoupon> coupons) {
+        if (cardNumber == null || cardNumber.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        String normalizedCardNumber = cardNumber.trim().toUpperCase();
+
+        return coupons.stream()
+                .filter(c -> c.matchesCard(normalizedCardNumber))
+                .map(CompiledCoupon::getCoupon)
+                .filter(c -> isMinOrderReached(totalAmount, c))
+                .max(Comparator.comparing(this::calculateFixedDiscount))
+                .map(c -> toCouponDetailWithCalculatedAmount(c, totalAmount));
+    }
+
+    private boolean isMinOrderReached(BigDecimal totalAmount, Coupon coupon) {
+        return coupon.getMinOrderAmount() == null ||
+                totalAmount.compareTo(coupon.getMinOrderAmount()) >= 0;
+    }
+
+    private BigDecimal calculateFixedDiscount(Coupon coupon) {
+        // Ưu tiên amount cố định, nếu không có thì dùng percentage
+        if (coupon.getAmount() != null && coupon.getAmount().compareTo(BigDecimal.ZERO) > 0) {
+            return coupon.getAmount();
+        }
+        return BigDecimal.ZERO; // Percentage sẽ được tính trong toCouponDetailWithCalculatedAmount
+    }
+
+    // Tìm TẤT CẢ coupon PRODUCT áp dụng được: mỗi mã sản phẩm tra trie một lần
+    private List<CouponDetail> findAllProductCoupons(List<ProductResponse> products, List<CompiledCoupon> coupons,
+                                                     ProductCodeIndex<Integer> productIndex) {
+        if (coupons.isEmpty()) return new ArrayList<>();
+
+        List<List<String>> matchedCodesByCoupon = new ArrayList<>(Collections.nCopies(coupons.size(), null));
+        for (ProductResponse product : products) {
+            String code = product.getProductCode();
+            if (code == null) continue;
+
+            for (int couponIndex : productIndex.lookup(code)) {
+                if (matchedCodesByCoupon.get(couponIndex) == null) {
+                    matchedCodesByCoupon.set(couponIndex, new ArrayList<>());
+                }
+                matchedCodesByCoupon.get(couponIndex).add(code);
+            }
+        }
+
+        List<CouponDetail> details = new ArrayList<>();
+        for (int i = 0; i < coupons.size(); i++) {
+            List<String> matchedProductCodes = matchedCodesByCoupon.get(i);
+            if (matchedProductCodes == null) continue;
+
+            Coupon coupon = coupons.get(i).getCoupon();
+            // Tính tổng giảm giá cho tất cả sản phẩm match
+            BigDecimal totalDiscount = BigDecimal.valueOf(matchedProductCodes.size())
+                    .multiply(coupon.getAmount());
+
+            details.add(CouponDetail.builder()
+                    .type(coupon.getType().name().toLowerCase())
+                    .name(coupon.getName())
+                    .amount(totalDiscount)
+                    .description(coupon.getDescription())
+                    .appliedProductCodes(matchedProductCodes)
+                    .build());
+        }
+        return details;
+    }
+
+    // Helper methods
+    private CouponDetail toCouponDetail(Coupon coupon) {
+        return CouponDetail.builder()
+                .type(coupon.getType().name().toLowerCase())
+                .name(coupon.getName())
+                .amount(coupon.getAmount())
+                .description(coupon.getDescription())
+                .build();
+    }
+
+    private CouponDetail toCouponDetailWithCalculatedAmount(Coupon coupon, BigDecimal totalAmount) {
+        BigDecimal discountAmount = coupon.getAmount();
+
+        // Nếu có percentage discount, tính theo %
+        if (coupon.getPercentageDiscount() != null &&
+                coupon.getPercentageDiscount().compareTo(BigDecimal.ZERO) > 0) {
+            discountAmount = totalAmount
+                    .multiply(coupon.getPercentageDiscount())
+                    .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        }
+
+        return CouponDetail.builder()
+                .type(coupon.getType().name().toLowerCase())
+                .name(coupon.getName())
+                .amount(discountAmount)
+                .description(coupon.getDescription())
+                .build();
+    }
+
+    // Biên dịch coupon: parse JSON và wildcard một lần duy nhất
+    private Optional<CompiledCoupon> compile(Coupon coupon) {
+        try {
+            List<WildcardPattern> comboPatterns = parseJsonArray(coupon.getComboProductCodes()).stream()
+                    .map(WildcardPattern::compile)
+                    .toList();
+
+            Set<String> applicableProductCodes = Set.copyOf(parseProductCodes(coupon.getApplicableProductCodes()));
+
+            String productPattern = coupon.getProductCodePattern();
+            WildcardPattern productCodePattern = productPattern != null && !productPattern.isEmpty()
+                    ? WildcardPattern.compile(productPattern)
+                    : null;
+
+            List<String> eligibleCards = parseJsonArray(coupon.getCardPattern()).stream()
+                    .map(card -> card.trim().toUpperCase())
+                    .toList();
+
+            return Optional.of(new CompiledCoupon(
+                    coupon,
+                    comboPatterns,
+                    applicableProductCodes,
+                    productCodePattern,
+                    Set.copyOf(eligibleCards),
+                    eligibleCards.stream().map(WildcardPattern::compile).toList()));
+
+        } catch (RuntimeException e) {
+            log.error("Skipping coupon {}: cannot compile its conditions", coupon.getId(), e);
+            return Optional.empty();
+        }
+    }
+
+    private List<String> parseJsonArray(String json) {
+        if (json == null || json.isEmpty()) return Collections.emptyList();
+        try {
+            // Thử parse JSON array
+            return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            // Fallback: comma-separated
+            return Arrays.asList(json.split(","));
+        }
+    }
+
+    private List<String> parseProductCodes(String json) {
+        if (json == null || json.isEmpty()) return Collections.emptyList();
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+}
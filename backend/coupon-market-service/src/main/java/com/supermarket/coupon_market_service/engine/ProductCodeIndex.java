@@ -0,0 +1,65 @@
+package com.supermarket.coupon_market_service.engine;
+
+import java.util.*;
+
+/**
+ * Trie trên mã sản phẩm: mỗi mã chỉ cần duyệt một lần để lấy tất cả giá trị có pattern khớp.
+ * EXACT được gắn vào nút cuối, PREFIX vào nút của tiền tố; pattern REGEX được thử tuần tự (fallback).
+ * Chỉ ghi trong lúc build snapshot; sau khi publish thì chỉ đọc nên an toàn cho nhiều luồng.
+ */
+public final class ProductCodeIndex<V> {
+    private static final class Node<V> {
+        final Map<Character, Node<V>> children = new HashMap<>();
+        final List<V> exactValues = new ArrayList<>();
+        final List<V> prefixValues = new ArrayList<>();
+    }
+
+    private record RegexEntry<V>(WildcardPattern pattern, V value) {
+    }
+
+    private final Node<V> root = new Node<>();
+    private final List<RegexEntry<V>> regexEntries = new ArrayList<>();
+
+    public void add(WildcardPattern pattern, V value) {
+        switch (pattern.getKind()) {
+            case EXACT -> nodeFor(pattern.getLiteral()).exactValues.add(value);
+            case PREFIX -> nodeFor(pattern.getLiteral()).prefixValues.add(value);
+            case REGEX -> regexEntries.add(new RegexEntry<>(pattern, value));
+        }
+    }
+
+    public void addExact(String code, V value) {
+        nodeFor(code).exactValues.add(value);
+    }
+
+    private Node<V> nodeFor(String key) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node<>());
+        }
+        return node;
+    }
+
+    public Set<V> lookup(String code) {
+        Set<V> result = new LinkedHashSet<>();
+
+        Node<V> node = root;
+        result.addAll(node.prefixValues);
+        for (int i = 0; i < code.length() && node != null; i++) {
+            node = node.children.get(code.charAt(i));
+            if (node != null) {
+                result.addAll(node.prefixValues);
+            }
+        }
+        if (node != null) {
+            result.addAll(node.exactValues);
+        }
+
+        for (RegexEntry<V> entry : regexEntries) {
+            if (entry.pattern().matches(code)) {
+                result.add(entry.value());
+            }
+        }
+        return result;
+    }
+}
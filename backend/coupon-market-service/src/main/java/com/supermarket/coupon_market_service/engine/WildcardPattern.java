@@ -0,0 +1,65 @@
+package com.supermarket.coupon_market_service.engine;
+
+import java.util.regex.Pattern;
+
+/**
+ * Wildcard của coupon ("SUA*", "BMI001", "*MILK*") được phân loại một lần:
+ * EXACT và PREFIX được so khớp bằng chuỗi/trie, chỉ những pattern còn lại mới cần regex.
+ * Ngữ nghĩa giữ nguyên như cũ: '*' -> ".*", các ký tự khác được hiểu theo regex.
+ */
+public final class WildcardPattern {
+    public enum Kind { EXACT, PREFIX, REGEX }
+
+    private static final String REGEX_META_CHARS = "\\.[]{}()*+?^$|";
+
+    private final Kind kind;
+    private final String literal;
+    private final Pattern regex;
+
+    private WildcardPattern(Kind kind, String literal, Pattern regex) {
+        this.kind = kind;
+        this.literal = literal;
+        this.regex = regex;
+    }
+
+    public static WildcardPattern compile(String wildcard) {
+        int star = wildcard.indexOf('*');
+        int literalEnd = star < 0 ? wildcard.length() : star;
+
+        if (isLiteral(wildcard, literalEnd)) {
+            if (star < 0) {
+                return new WildcardPattern(Kind.EXACT, wildcard, null);
+            }
+            if (star == wildcard.length() - 1) {
+                return new WildcardPattern(Kind.PREFIX, wildcard.substring(0, star), null);
+            }
+        }
+        return new WildcardPattern(Kind.REGEX, null, Pattern.compile(wildcard.replace("*", ".*")));
+    }
+
+    private static boolean isLiteral(String value, int end) {
+        for (int i = 0; i < end; i++) {
+            if (REGEX_META_CHARS.indexOf(value.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean matches(String code) {
+        return switch (kind) {
+            case EXACT -> literal.equals(code);
+            case PREFIX -> code.startsWith(literal);
+            case REGEX -> regex.matcher(code).matches();
+        };
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // Phần chuỗi cố định của EXACT/PREFIX
+    public String getLiteral() {
+        return literal;
+    }
+}
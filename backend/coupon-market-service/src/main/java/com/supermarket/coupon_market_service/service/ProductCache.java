@@ -0,0 +1,61 @@
+package com.supermarket.coupon_market_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.supermarket.coupon_market_service.dto.response.ProductResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Near-cache sản phẩm theo id cho applyCoupons (chỉ cần productCode và price).
+ * Giới hạn kích thước + TTL; các id còn thiếu được lấy về bằng MỘT lời gọi bulk.
+ * product-market-service gọi invalidate sau khi sửa/xoá sản phẩm commit, nhưng lời gọi chỉ tới instance mà
+ * inter-service.urls.coupon trỏ vào; các instance khác dựa vào TTL ngắn để hết dữ liệu cũ.
+ */
+@Slf4j
+@Component
+public class ProductCache {
+    private final Cache<String, ProductResponse> cache;
+
+    public ProductCache(@Value("${coupon.product-cache.maximum-size:20000}") long maximumSize,
+                        @Value("${coupon.product-cache.ttl:1m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Trả về các sản phẩm tìm thấy (không trùng, theo thứ tự id), loader chỉ nhận các id chưa có trong cache
+    public List<ProductResponse> getAll(List<String> productIds, Function<List<String>, List<ProductResponse>> loader) {
+        if (productIds == null || productIds.isEmpty()) return new ArrayList<>();
+
+        Set<String> ids = new LinkedHashSet<>(productIds);
+        ids.remove(null);
+
+        Map<String, ProductResponse> products = cache.getAll(ids, missingIds -> {
+            Map<String, ProductResponse> loaded = new HashMap<>();
+            for (ProductResponse product : loader.apply(new ArrayList<>(missingIds))) {
+                if (product.getId() != null) {
+                    loaded.put(product.getId(), product);
+                }
+            }
+            return loaded;
+        });
+        return new ArrayList<>(products.values());
+    }
+
+    public void invalidate(Collection<String> productIds) {
+        cache.invalidateAll(productIds);
+        log.debug("Product cache invalidated {} ids", productIds.size());
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
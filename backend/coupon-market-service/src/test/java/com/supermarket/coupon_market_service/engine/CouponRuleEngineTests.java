@@ -0,0 +1,356 @@
+package com.supermarket.coupon_market_service.engine;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.coupon_market_service.dto.response.CouponDetail;
+import com.supermarket.coupon_market_service.dto.response.ProductResponse;
+import com.supermarket.coupon_market_service.model.Coupon;
+import com.supermarket.coupon_market_service.model.CouponType;
+import com.supermarket.coupon_market_service.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The compiled rule engine must pick exactly the coupons and amounts the old per-request selection in
+ * CouponService picked. {@link LegacySelection} is that old code (matchesPattern + best-coupon streams), kept verbatim.
+ */
+class CouponRuleEngineTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void productCouponsMatchExactPrefixAndRegexPatternsLikeBefore() {
+        List<Coupon> coupons = List.of(
+                product(1L, "exact list", "5000", "[\"SUA001\",\"BMI002\"]", null),
+                product(2L, "prefix", "1000", null, "SUA*"),
+                product(3L, "exact pattern", "2000", null, "BMI002"),
+                product(4L, "infix regex", "3000", null, "*MILK*"),
+                product(5L, "exact list and overlapping prefix", "700", "[\"SUA001\"]", "SUA*"),
+                product(6L, "regex metachars", "400", null, "SUA.0*"),
+                product(7L, "character class", "300", null, "BMI00[12]"),
+                product(8L, "nothing matches", "9999", null, "ZZZ*"));
+        List<ProductResponse> basket = products("SUA001", "SUA001", "SUAX01", "BMI002", "FRESHMILK1", "BMI001", "MILK");
+
+        assertSameSelection(coupons, basket, new BigDecimal("200000"), null);
+    }
+
+    @Test
+    void comboCouponRequiresEveryPatternAndPicksHighestAmount() {
+        List<Coupon> coupons = List.of(
+                combo(1L, "milk + bread", "20000", "[\"SUA*\",\"BMI*\"]"),
+                combo(2L, "milk + exact bread", "30000", "[\"SUA*\",\"BMI002\"]"),
+                combo(3L, "needs fish", "90000", "[\"SUA*\",\"CA*\"]"),
+                combo(4L, "comma fallback", "25000", "SUA001,BMI002"),
+                combo(5L, "regex metachars", "15000", "[\"SUA.01\",\"BMI00?2\"]"),
+                combo(6L, "same product twice", "29000", "[\"SUA001\",\"SUA*\"]"));
+
+        assertSameSelection(coupons, products("SUA001", "BMI002"), new BigDecimal("50000"), null);
+        assertSameSelection(coupons, products("SUA001"), new BigDecimal("50000"), null);
+        assertSameSelection(coupons, products("BMI002", "CA01"), new BigDecimal("50000"), null);
+    }
+
+    @Test
+    void tiesKeepTheFirstActiveCouponLikeStreamMax() {
+        List<Coupon> coupons = List.of(
+                combo(1L, "first combo", "10000", "[\"SUA*\"]"),
+                combo(2L, "second combo", "10000", "[\"SUA001\"]"),
+                total(3L, "first total", "5000", null, "100000"),
+                total(4L, "second total", "5000", null, "50000"),
+                holiday(5L, "first holiday", "8000"),
+                holiday(6L, "second holiday", "8000"),
+                customer(7L, "first card", "3000", "[\"GCARD*\"]"),
+                customer(8L, "second card", "3000", "[\"GCARD001\"]"));
+
+        assertSameSelection(coupons, products("SUA001"), new BigDecimal("150000"), "gcard001");
+    }
+
+    @Test
+    void totalAndCustomerCouponsUseMinimumOrderAndPercentage() {
+        List<Coupon> coupons = List.of(
+                total(1L, "fixed", "15000", null, "100000"),
+                total(2L, "percent", null, "10", "50000"),
+                total(3L, "too high minimum", "90000", null, "1000000"),
+                customer(4L, "prefix card", "5000", "[\"GCARD*\"]"),
+                customer(5L, "exact card, lower case in rule", "7000", "[\"vip001\"]"),
+                customer(6L, "regex card", "6000", "[\"VIP00[0-9]\"]"));
+
+        for (String card : Arrays.asList(null, " ", "gcard123", " VIP001 ", "VIP009", "OTHER")) {
+            assertSameSelection(coupons, products("SUA001"), new BigDecimal("120000"), card);
+            assertSameSelection(coupons, products("SUA001"), new BigDecimal("60000"), card);
+        }
+    }
+
+    private void assertSameSelection(List<Coupon> coupons, List<ProductResponse> basket, BigDecimal total, String card) {
+        CouponRepository repository = mock(CouponRepository.class);
+        when(repository.findAllActiveCoupons(any())).thenReturn(coupons);
+        CouponRuleEngine engine = new CouponRuleEngine(repository, objectMapper);
+
+        List<CouponDetail> expected = new LegacySelection(objectMapper).select(basket, total, card, coupons);
+        List<CouponDetail> actual = engine.evaluate(basket, total, card);
+
+        assertEquals(describe(expected), describe(actual), "basket " + codes(basket) + ", card " + card);
+    }
+
+    // Amounts compared by value so 20000 and 20000.00 are equal
+    private static List<String> describe(List<CouponDetail> details) {
+        return details.stream()
+                .map(d -> d.getType() + "|" + d.getName() + "|" + d.getAmount().stripTrailingZeros().toPlainString()
+                        + "|" + d.getAppliedProductCodes())
+                .toList();
+    }
+
+    private static List<String> codes(List<ProductResponse> products) {
+        return products.stream().map(ProductResponse::getProductCode).toList();
+    }
+
+    private static List<ProductResponse> products(String... codes) {
+        return Arrays.stream(codes)
+                .map(code -> ProductResponse.builder().id("id-" + code).productCode(code).price(BigDecimal.TEN).build())
+                .toList();
+    }
+
+    private static Coupon coupon(Long id, CouponType type, String name, String amount) {
+        Coupon coupon = new Coupon();
+        coupon.setId(id);
+        coupon.setType(type);
+        coupon.setName(name);
+        coupon.setAmount(amount == null ? null : new BigDecimal(amount));
+        return coupon;
+    }
+
+    private static Coupon product(Long id, String name, String amount, String codes, String pattern) {
+        Coupon coupon = coupon(id, CouponType.PRODUCT, name, amount);
+        coupon.setApplicableProductCodes(codes);
+        coupon.setProductCodePattern(pattern);
+        return coupon;
+    }
+
+    private static Coupon combo(Long id, String name, String amount, String codes) {
+        Coupon coupon = coupon(id, CouponType.COMBO, name, amount);
+        coupon.setComboProductCodes(codes);
+        return coupon;
+    }
+
+    private static Coupon total(Long id, String name, String amount, String percentage, String minOrder) {
+        Coupon coupon = coupon(id, CouponType.TOTAL, name, amount);
+        coupon.setPercentageDiscount(percentage == null ? null : new BigDecimal(percentage));
+        coupon.setMinOrderAmount(new BigDecimal(minOrder));
+        return coupon;
+    }
+
+    private static Coupon holiday(Long id, String name, String amount) {
+        Coupon coupon = coupon(id, CouponType.HOLIDAY, name, amount);
+        coupon.setHolidayStartDate(LocalDate.now().minusDays(1));
+        coupon.setHolidayEndDate(LocalDate.now().plusDays(1));
+        return coupon;
+    }
+
+    private static Coupon customer(Long id, String name, String amount, String cards) {
+        Coupon coupon = coupon(id, CouponType.CUSTOMER, name, amount);
+        coupon.setCardPattern(cards);
+        return coupon;
+    }
+
+    /**
+     * Coupon selection as CouponService.applyCoupons did it before the rule engine, minus the HTTP call.
+     */
+    private record LegacySelection(ObjectMapper objectMapper) {
+
+        List<CouponDetail> select(List<ProductResponse> products, BigDecimal originalTotal, String cardNumber,
+                                  List<Coupon> activeCoupons) {
+            List<CouponDetail> appliedCoupons = new ArrayList<>();
+            findBestComboCoupon(products, activeCoupons).ifPresent(appliedCoupons::add);
+            findBestTotalCoupon(originalTotal, activeCoupons).ifPresent(appliedCoupons::add);
+            findBestHolidayCoupon(activeCoupons).ifPresent(appliedCoupons::add);
+            findBestCustomerCoupon(cardNumber, originalTotal, activeCoupons).ifPresent(appliedCoupons::add);
+            appliedCoupons.addAll(findAllProductCoupons(products, activeCoupons));
+            return appliedCoupons;
+        }
+
+        private Optional<CouponDetail> findBestComboCoupon(List<ProductResponse> products, List<Coupon> coupons) {
+            return coupons.stream()
+                    .filter(c -> c.getType() == CouponType.COMBO)
+                    .filter(c -> isComboApplicable(products, c)).max(Comparator.comparing(Coupon::getAmount))
+                    .map(this::toCouponDetail);
+        }
+
+        private boolean isComboApplicable(List<ProductResponse> products, Coupon coupon) {
+            try {
+                List<String> requiredCodes = parseJsonArray(coupon.getComboProductCodes());
+                if (requiredCodes.isEmpty()) return false;
+
+                Set<String> productCodes = products.stream()
+                        .map(ProductResponse::getProductCode)
+                        .collect(Collectors.toSet());
+
+                for (String requiredCode : requiredCodes) {
+                    boolean found = productCodes.stream()
+                            .anyMatch(pc -> matchesPattern(pc, requiredCode));
+                    if (!found) return false;
+                }
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private Optional<CouponDetail> findBestTotalCoupon(BigDecimal totalAmount, List<Coupon> coupons) {
+            return coupons.stream()
+                    .filter(c -> c.getType() == CouponType.TOTAL)
+                    .filter(c -> c.getMinOrderAmount() == null || totalAmount.compareTo(c.getMinOrderAmount()) >= 0)
+                    .max(Comparator.comparing(this::calculateFixedDiscount))
+                    .map(c -> toCouponDetailWithCalculatedAmount(c, totalAmount));
+        }
+
+        private BigDecimal calculateFixedDiscount(Coupon coupon) {
+            if (coupon.getAmount() != null && coupon.getAmount().compareTo(BigDecimal.ZERO) > 0) {
+                return coupon.getAmount();
+            }
+            return BigDecimal.ZERO;
+        }
+
+        private Optional<CouponDetail> findBestHolidayCoupon(List<Coupon> coupons) {
+            LocalDate now = LocalDate.now();
+            return coupons.stream()
+                    .filter(c -> c.getType() == CouponType.HOLIDAY)
+                    .filter(c -> (c.getHolidayStartDate() == null || !now.isBefore(c.getHolidayStartDate())) &&
+                            (c.getHolidayEndDate() == null || !now.isAfter(c.getHolidayEndDate())))
+                    .max(Comparator.comparing(Coupon::getAmount))
+                    .map(this::toCouponDetail);
+        }
+
+        private Optional<CouponDetail> findBestCustomerCoupon(String cardNumber, BigDecimal totalAmount, List<Coupon> coupons) {
+            if (cardNumber == null || cardNumber.trim().isEmpty()) {
+                return Optional.empty();
+            }
+            return coupons.stream()
+                    .filter(c -> c.getType() == CouponType.CUSTOMER)
+                    .filter(c -> isCustomerApplicable(cardNumber, totalAmount, c))
+                    .max(Comparator.comparing(this::calculateFixedDiscount))
+                    .map(c -> toCouponDetailWithCalculatedAmount(c, totalAmount));
+        }
+
+        private boolean isCustomerApplicable(String cardNumber, BigDecimal totalAmount, Coupon coupon) {
+            try {
+                List<String> eligibleCards = parseJsonArray(coupon.getCardPattern());
+                if (eligibleCards.isEmpty()) return false;
+
+                String normalizedCardNumber = cardNumber.trim().toUpperCase();
+                boolean cardMatches = eligibleCards.stream()
+                        .anyMatch(eligibleCard -> {
+                            String normalizedEligible = eligibleCard.trim().toUpperCase();
+                            if (normalizedCardNumber.equals(normalizedEligible)) {
+                                return true;
+                            }
+                            return matchesPattern(normalizedCardNumber, normalizedEligible);
+                        });
+                if (!cardMatches) return false;
+
+                return coupon.getMinOrderAmount() == null || totalAmount.compareTo(coupon.getMinOrderAmount()) >= 0;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private List<CouponDetail> findAllProductCoupons(List<ProductResponse> products, List<Coupon> coupons) {
+            return coupons.stream()
+                    .filter(c -> c.getType() == CouponType.PRODUCT)
+                    .map(c -> applyProductCoupon(products, c))
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toList());
+        }
+
+        private Optional<CouponDetail> applyProductCoupon(List<ProductResponse> products, Coupon coupon) {
+            try {
+                List<String> applicableCodes = parseProductCodes(coupon.getApplicableProductCodes());
+                String pattern = coupon.getProductCodePattern();
+
+                List<String> matchedProductCodes = products.stream()
+                        .filter(p -> isProductMatch(p, applicableCodes, pattern))
+                        .map(ProductResponse::getProductCode)
+                        .toList();
+                if (matchedProductCodes.isEmpty()) {
+                    return Optional.empty();
+                }
+
+                return Optional.of(CouponDetail.builder()
+                        .type(coupon.getType().name().toLowerCase())
+                        .name(coupon.getName())
+                        .amount(BigDecimal.valueOf(matchedProductCodes.size()).multiply(coupon.getAmount()))
+                        .description(coupon.getDescription())
+                        .appliedProductCodes(matchedProductCodes)
+                        .build());
+            } catch (Exception e) {
+                return Optional.empty();
+            }
+        }
+
+        private boolean isProductMatch(ProductResponse product, List<String> applicableCodes, String pattern) {
+            if (!applicableCodes.isEmpty() && applicableCodes.contains(product.getProductCode())) {
+                return true;
+            }
+            if (pattern != null && !pattern.isEmpty()) {
+                return matchesPattern(product.getProductCode(), pattern);
+            }
+            return false;
+        }
+
+        private boolean matchesPattern(String productCode, String pattern) {
+            String regexPattern = pattern.replace("*", ".*");
+            return Pattern.matches(regexPattern, productCode);
+        }
+
+        private CouponDetail toCouponDetail(Coupon coupon) {
+            return CouponDetail.builder()
+                    .type(coupon.getType().name().toLowerCase())
+                    .name(coupon.getName())
+                    .amount(coupon.getAmount())
+                    .description(coupon.getDescription())
+                    .build();
+        }
+
+        private CouponDetail toCouponDetailWithCalculatedAmount(Coupon coupon, BigDecimal totalAmount) {
+            BigDecimal discountAmount = coupon.getAmount();
+            if (coupon.getPercentageDiscount() != null &&
+                    coupon.getPercentageDiscount().compareTo(BigDecimal.ZERO) > 0) {
+                discountAmount = totalAmount
+                        .multiply(coupon.getPercentageDiscount())
+                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+            }
+            return CouponDetail.builder()
+                    .type(coupon.getType().name().toLowerCase())
+                    .name(coupon.getName())
+                    .amount(discountAmount)
+                    .description(coupon.getDescription())
+                    .build();
+        }
+
+        private List<String> parseJsonArray(String json) {
+            if (json == null || json.isEmpty()) return Collections.emptyList();
+            try {
+                return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+            } catch (Exception e) {
+                return Arrays.asList(json.split(","));
+            }
+        }
+
+        private List<String> parseProductCodes(String json) {
+            if (json == null || json.isEmpty()) return Collections.emptyList();
+            try {
+                return objectMapper.readValue(json, new TypeReference<List<String>>() {});
+            } catch (Exception e) {
+                return Collections.emptyList();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.supermarket.coupon_market_service.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductCodeIndexTests {
+
+    @Test
+    void lookupReturnsEveryMatchingValueOnce() {
+        ProductCodeIndex<String> index = new ProductCodeIndex<>();
+        index.add(WildcardPattern.compile("SUA001"), "exact");
+        index.add(WildcardPattern.compile("SUA*"), "prefix SUA");
+        index.add(WildcardPattern.compile("S*"), "prefix S");
+        index.add(WildcardPattern.compile("*"), "everything");
+        index.add(WildcardPattern.compile("*001"), "regex suffix");
+        index.addExact("SUA001", "exact list");
+        index.add(WildcardPattern.compile("SUA*"), "exact list"); // same value via a second rule
+
+        assertEquals(Set.of("everything", "prefix S", "prefix SUA", "exact", "exact list", "regex suffix"),
+                index.lookup("SUA001"));
+        assertEquals(Set.of("everything", "prefix S", "prefix SUA", "exact list"), index.lookup("SUA002"));
+        assertEquals(Set.of("everything", "prefix S"), index.lookup("SU"));
+        assertEquals(Set.of("everything", "regex suffix"), index.lookup("BMI001"));
+    }
+
+    @Test
+    void exactEntryDoesNotMatchLongerOrShorterCodes() {
+        ProductCodeIndex<Integer> index = new ProductCodeIndex<>();
+        index.add(WildcardPattern.compile("SUA001"), 1);
+        index.add(WildcardPattern.compile("SUA0*"), 2);
+
+        assertEquals(Set.of(1, 2), index.lookup("SUA001"));
+        assertEquals(Set.of(2), index.lookup("SUA0011"));
+        assertEquals(Set.of(), index.lookup("SUA"));
+        assertEquals(Set.of(), index.lookup(""));
+    }
+
+    @Test
+    void agreesWithMatchingEachPatternOneByOne() {
+        List<String> wildcards = List.of("SUA001", "SUA*", "SUA0*", "BMI.01", "*MILK*", "BMI00[12]", "*", "SUA**");
+        ProductCodeIndex<Integer> index = new ProductCodeIndex<>();
+        for (int i = 0; i < wildcards.size(); i++) {
+            index.add(WildcardPattern.compile(wildcards.get(i)), i);
+        }
+
+        for (String code : List.of("SUA001", "SUA002", "SUA", "BMI001", "BMIX01", "BMI003", "FRESHMILK", "", "X")) {
+            Set<Integer> expected = new java.util.HashSet<>();
+            for (int i = 0; i < wildcards.size(); i++) {
+                if (WildcardPattern.compile(wildcards.get(i)).matches(code)) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, index.lookup(code), code);
+        }
+    }
+}
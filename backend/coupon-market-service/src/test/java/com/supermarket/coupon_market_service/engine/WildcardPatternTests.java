@@ -0,0 +1,53 @@
+package com.supermarket.coupon_market_service.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WildcardPatternTests {
+    private static final List<String> PATTERNS = List.of(
+            "SUA001", "SUA*", "*", "*MILK*", "SUA*01", "SUA**", "", "BMI.01", "SUA.*", "BMI00[12]", "BMI00?2",
+            "A+B", "(SUA|BMI)*", "^SUA*", "SUA$", "SU{2}A", "A\\dB", "SUA-01*", "sua*");
+    private static final List<String> CODES = List.of(
+            "SUA001", "SUA", "SUA01", "SUAX01", "SUA-01X", "BMI001", "BMI002", "BMI02", "BMIX01", "FRESHMILK1",
+            "MILK", "AAB", "A+B", "A1B", "SUUA", "sua001", "", "BMI.01");
+
+    // Old CouponService.matchesPattern: '*' -> ".*", everything else is regex
+    private static boolean legacyMatches(String code, String wildcard) {
+        return Pattern.matches(wildcard.replace("*", ".*"), code);
+    }
+
+    @Test
+    void matchesExactlyLikeTheOldRegexTranslation() {
+        for (String wildcard : PATTERNS) {
+            WildcardPattern pattern = WildcardPattern.compile(wildcard);
+            for (String code : CODES) {
+                assertEquals(legacyMatches(code, wildcard), pattern.matches(code),
+                        "pattern '" + wildcard + "' (" + pattern.getKind() + ") vs code '" + code + "'");
+            }
+        }
+    }
+
+    @Test
+    void classifiesLiteralPatternsWithoutRegex() {
+        assertEquals(WildcardPattern.Kind.EXACT, WildcardPattern.compile("SUA001").getKind());
+        assertEquals("SUA001", WildcardPattern.compile("SUA001").getLiteral());
+
+        assertEquals(WildcardPattern.Kind.PREFIX, WildcardPattern.compile("SUA*").getKind());
+        assertEquals("SUA", WildcardPattern.compile("SUA*").getLiteral());
+        assertEquals("", WildcardPattern.compile("*").getLiteral());
+    }
+
+    @Test
+    void fallsBackToRegexForMetacharactersAndInnerWildcards() {
+        for (String wildcard : List.of("*MILK*", "SUA*01", "SUA**", "BMI.01", "SUA.*", "BMI00[12]", "A+B", "^SUA*")) {
+            WildcardPattern pattern = WildcardPattern.compile(wildcard);
+            assertEquals(WildcardPattern.Kind.REGEX, pattern.getKind(), wildcard);
+            assertNull(pattern.getLiteral(), wildcard);
+        }
+    }
+}
@@ -33,6 +33,8 @@ public class SecurityConfig {
         return http
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(PUBLIC_ENDPOINT).permitAll()
+                        .requestMatchers("/api/customers/addPoints/batch").hasAnyRole("SERVICE", "CASHIER")
+                        .requestMatchers("/api/customers/addPoints/bulk").hasAnyRole("SERVICE", "MARKETING")
                         .requestMatchers(CASHIER_ENDPOINT).hasRole("CASHIER")
                         .requestMatchers("/api/customers/**").hasRole("MARKETING")
                         .anyRequest().authenticated()
@@ -1,14 +1,24 @@
 package com.supermarket.customer_market_service.controller;
 
+import com.supermarket.customer_market_service.dto.request.AddPointsRequest;
 import com.supermarket.customer_market_service.dto.request.CustomerRequest;
+import com.supermarket.customer_market_service.dto.request.PointsDeltaRequest;
+import com.supermarket.customer_market_service.dto.response.AddPointsResponse;
+import com.supermarket.customer_market_service.dto.response.BulkAddPointsResponse;
+import com.supermarket.customer_market_service.dto.response.CustomerPageResponse;
 import com.supermarket.customer_market_service.dto.response.CustomerResponse;
+import com.supermarket.customer_market_service.dto.response.CustomerScrollResponse;
 import com.supermarket.customer_market_service.service.CustomerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -23,6 +33,44 @@ public class CustomerController {
         return ResponseEntity.ok(customerService.getAllCustomers());
     }
 
+    /**
+     * Get one page of customers ordered by id
+     * GET /api/customers/page?page=0&size=50
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CustomerPageResponse> getCustomerPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(customerService.getCustomerPage(page, size));
+    }
+
+    /**
+     * Scroll customers by id (keyset pagination)
+     * GET /api/customers/scroll?size=500
+     * Next page: pass nextCursorId from the previous response as cursorId
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CustomerScrollResponse> scrollCustomers(
+            @RequestParam(required = false) Long cursorId,
+            @RequestParam(defaultValue = "500") int size) {
+        return ResponseEntity.ok(customerService.scrollCustomers(cursorId, size));
+    }
+
+    /**
+     * Stream every customer as CSV or NDJSON (one customer per line)
+     * GET /api/customers/export?format=csv
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(defaultValue = "csv") String format) {
+        boolean csv = !"ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = outputStream -> customerService.exportCustomers(csv, outputStream);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=customers." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CustomerResponse> getCustomerById(@PathVariable Long id) {
         return ResponseEntity.ok(customerService.getCustomerById(id));
@@ -30,8 +78,9 @@ public class CustomerController {
 
     @GetMapping("/search")
     public ResponseEntity<List<CustomerResponse>> searchByCardNumber(
-            @RequestParam String cardNumber) {
-        return ResponseEntity.ok(customerService.searchByCardNumber(cardNumber));
+            @RequestParam String cardNumber,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(customerService.searchByCardNumber(cardNumber, limit));
     }
 
     @PostMapping("/create")
@@ -73,4 +122,18 @@ public class CustomerController {
         customerService.addRewardPointsAndTierPoints(customerId, rewardPoints, tierPoints);
         return ResponseEntity.ok().build();
     }
+
+    // Gọi từ LoyaltyPointsDispatcher của transaction service (service account)
+    @PostMapping("/addPoints/batch")
+    public ResponseEntity<List<AddPointsResponse>> addPointsBatch(
+            @RequestBody List<@Valid AddPointsRequest> requests) {
+        return ResponseEntity.ok(customerService.addPointsBatch(requests));
+    }
+
+    // Back-office: phát lại / đối soát điểm cho nhiều khách hàng trong một batch
+    @PutMapping("/addPoints/bulk")
+    public ResponseEntity<BulkAddPointsResponse> addPointsBulk(
+            @RequestBody List<@Valid PointsDeltaRequest> deltas) {
+        return ResponseEntity.ok(customerService.addPointsBulk(deltas));
+    }
 }
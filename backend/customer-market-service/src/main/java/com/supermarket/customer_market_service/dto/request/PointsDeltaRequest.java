@@ -0,0 +1,21 @@
+package com.supermarket.customer_market_service.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsDeltaRequest {
+
+    @NotNull(message = "ID khách hàng không được để trống")
+    private Long customerId;
+
+    @NotNull(message = "Điểm thưởng không được để trống")
+    private Integer rewardPoints;
+
+    @NotNull(message = "Điểm hạng không được để trống")
+    private Integer tierPoints;
+}
@@ -0,0 +1,14 @@
+package com.supermarket.customer_market_service.dto.response;
+
+import com.supermarket.customer_market_service.model.AccrualStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddPointsResponse {
+    private String idempotencyKey;
+    private AccrualStatus status;
+}
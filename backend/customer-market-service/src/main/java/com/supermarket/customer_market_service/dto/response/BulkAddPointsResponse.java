@@ -0,0 +1,15 @@
+package com.supermarket.customer_market_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAddPointsResponse {
+    private int updated;
+    private List<Long> notFoundCustomerIds;
+}
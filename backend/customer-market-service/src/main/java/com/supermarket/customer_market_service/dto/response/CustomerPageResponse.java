@@ -0,0 +1,20 @@
+package com.supermarket.customer_market_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerPageResponse {
+    private List<CustomerResponse> customers;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -0,0 +1,18 @@
+package com.supermarket.customer_market_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerScrollResponse {
+    private List<CustomerResponse> customers;
+    // Con trỏ cho trang tiếp theo, null nếu đã hết dữ liệu
+    private Long nextCursorId;
+}
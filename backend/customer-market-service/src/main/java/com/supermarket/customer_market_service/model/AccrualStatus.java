@@ -0,0 +1,7 @@
+package com.supermarket.customer_market_service.model;
+
+public enum AccrualStatus {
+    APPLIED,            // đã cộng điểm
+    DUPLICATE,          // idempotency key đã được xử lý trước đó, không cộng lại
+    CUSTOMER_NOT_FOUND
+}
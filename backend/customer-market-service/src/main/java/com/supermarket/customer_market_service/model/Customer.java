@@ -6,6 +6,7 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
 @Data
@@ -21,4 +22,7 @@ public class Customer extends User{
     private Integer rewardPoints = 0;
     private Integer tierPoints = 0;
     private Boolean active = true;
+    // MySQL tự gán khi insert/update (V3__customer_updated_at.sql), CardNumberIndex.sync đọc theo cột này
+    @Column(insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
 }
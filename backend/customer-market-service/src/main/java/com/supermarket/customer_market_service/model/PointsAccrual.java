@@ -0,0 +1,25 @@
+package com.supermarket.customer_market_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Sổ ghi các lần cộng điểm đã xử lý, khoá chính là idempotency key do transaction service gửi.
+// Bản ghi cũ được PointsAccrualPurger xoá định kỳ
+@Entity
+@Table(name = "points_accrual", indexes = @Index(name = "idx_points_accrual_applied_at", columnList = "applied_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsAccrual {
+    @Id
+    @Column(length = 64)
+    private String idempotencyKey;
+    private Long customerId;
+    private Integer rewardPoints;
+    private Integer tierPoints;
+    private LocalDateTime appliedAt;
+}
@@ -1,22 +1,71 @@
 package com.supermarket.customer_market_service.repository;
 
 import com.supermarket.customer_market_service.model.Customer;
+import com.supermarket.customer_market_service.repository.projection.CardNumberChangeProjection;
+import com.supermarket.customer_market_service.repository.projection.CardNumberProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerRepositoryCustom {
 
     Optional<Customer> findByCardNumber(String cardNumber);
 
-    List<Customer> findByCardNumberContainingIgnoreCase(String cardNumber);
+    @Query("SELECT c.id FROM Customer c WHERE c.cardNumber = :cardNumber")
+    Optional<Long> findIdByCardNumber(@Param("cardNumber") String cardNumber);
+
+    // Chỉ dùng khi CardNumberIndex chưa nạp xong
+    List<Customer> findByCardNumberContainingIgnoreCase(String cardNumber, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c.id AS id, c.cardNumber AS cardNumber FROM Customer c")
+    Stream<CardNumberProjection> streamCardNumbers();
+
+    @Query("SELECT MAX(c.updatedAt) FROM Customer c")
+    LocalDateTime findMaxUpdatedAt();
+
+    // Keyset theo (updatedAt, id) để không bỏ sót các dòng cùng updatedAt nằm vắt qua hai trang
+    @Query("SELECT c.id AS id, c.cardNumber AS cardNumber, c.updatedAt AS updatedAt FROM Customer c " +
+            "WHERE c.updatedAt >= :since AND (c.updatedAt > :since OR c.id > :afterId) ORDER BY c.updatedAt, c.id")
+    List<CardNumberChangeProjection> findCardNumbersChangedAfter(@Param("since") LocalDateTime since,
+                                                                 @Param("afterId") Long afterId,
+                                                                 Pageable pageable);
 
     boolean existsByEmail(String email);
 
     boolean existsByCardNumber(String cardNumber);
 
     List<Customer> findByActiveTrue();
+
+    // Keyset pagination theo id tăng dần
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long cursorId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM Customer c ORDER BY c.id")
+    Stream<Customer> streamAllOrderById();
+
+    // Cộng điểm ngay trong câu UPDATE, không đọc-sửa-ghi nên hai giao dịch đồng thời không ghi đè lẫn nhau
+    @Modifying
+    @Query("UPDATE Customer c SET c.rewardPoints = COALESCE(c.rewardPoints, 0) + :rewardPoints, " +
+            "c.tierPoints = COALESCE(c.tierPoints, 0) + :tierPoints WHERE c.id = :customerId")
+    int addPoints(@Param("customerId") Long customerId,
+                  @Param("rewardPoints") Integer rewardPoints,
+                  @Param("tierPoints") Integer tierPoints);
+
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,13 @@
+package com.supermarket.customer_market_service.repository;
+
+import com.supermarket.customer_market_service.dto.request.PointsDeltaRequest;
+
+import java.util.List;
+
+public interface CustomerRepositoryCustom {
+    /**
+     * Add each (customerId, rewardPoints, tierPoints) delta in place as one JDBC batch of atomic UPDATEs.
+     * Returns the affected row count per delta, in input order; 0 means the customer does not exist.
+     */
+    int[] batchAddPoints(List<PointsDeltaRequest> deltas);
+}
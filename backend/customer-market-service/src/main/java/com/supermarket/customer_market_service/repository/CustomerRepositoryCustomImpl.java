@@ -0,0 +1,30 @@
+package com.supermarket.customer_market_service.repository;
+
+import com.supermarket.customer_market_service.dto.request.PointsDeltaRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class CustomerRepositoryCustomImpl implements CustomerRepositoryCustom {
+    private static final String ADD_POINTS_SQL =
+            "UPDATE customer SET reward_points = COALESCE(reward_points, 0) + ?, " +
+            "tier_points = COALESCE(tier_points, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] batchAddPoints(List<PointsDeltaRequest> deltas) {
+        if (deltas.isEmpty()) {
+            return new int[0];
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(ADD_POINTS_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setInt(1, delta.getRewardPoints());
+            ps.setInt(2, delta.getTierPoints());
+            ps.setLong(3, delta.getCustomerId());
+        });
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+    }
+}
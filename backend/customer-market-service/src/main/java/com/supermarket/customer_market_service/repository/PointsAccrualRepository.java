@@ -0,0 +1,29 @@
+package com.supermarket.customer_market_service.repository;
+
+import com.supermarket.customer_market_service.model.PointsAccrual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PointsAccrualRepository extends JpaRepository<PointsAccrual, String> {
+
+    // Trả về 1 nếu ghi nhận mới, 0 nếu idempotency key đã tồn tại
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO points_accrual (idempotency_key, customer_id, reward_points, tier_points, applied_at) " +
+            "VALUES (:key, :customerId, :rewardPoints, :tierPoints, :appliedAt)", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String idempotencyKey,
+                       @Param("customerId") Long customerId,
+                       @Param("rewardPoints") Integer rewardPoints,
+                       @Param("tierPoints") Integer tierPoints,
+                       @Param("appliedAt") LocalDateTime appliedAt);
+
+    // Xoá theo lô các bản ghi đã quá hạn giữ idempotency key
+    @Modifying
+    @Query(value = "DELETE FROM points_accrual WHERE applied_at < :cutoff LIMIT :limit", nativeQuery = true)
+    int deleteAppliedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
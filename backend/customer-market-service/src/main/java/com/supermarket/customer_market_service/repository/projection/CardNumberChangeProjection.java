@@ -0,0 +1,8 @@
+package com.supermarket.customer_market_service.repository.projection;
+
+import java.time.LocalDateTime;
+
+// Mã thẻ kèm updated_at, dùng cho CardNumberIndex.sync đọc các khách hàng thay đổi ở instance khác
+public interface CardNumberChangeProjection extends CardNumberProjection {
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,7 @@
+package com.supermarket.customer_market_service.repository.projection;
+
+// Chỉ id và mã thẻ, dùng để nạp CardNumberIndex mà không load cả entity Customer
+public interface CardNumberProjection {
+    Long getId();
+    String getCardNumber();
+}
@@ -0,0 +1,94 @@
+package com.supermarket.customer_market_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Cache mã số thẻ → id khách hàng cho getIdByCardNumber (bước đầu tiên của mọi lần thanh toán có thẻ).
+ * createCustomer / updateCustomer / deleteCustomer invalidate sau khi commit, TTL chỉ là chốt chặn cuối.
+ * Negative cache (tuỳ chọn) nhớ các thẻ không tồn tại trong thời gian ngắn để quét thẻ sai không dội xuống MySQL.
+ * Hit/miss có tại /actuator/metrics/cache.gets?tag=cache:customer.card-id
+ */
+@Slf4j
+@Component
+public class CardNumberCache {
+    private final Cache<String, Long> ids;
+    private final Cache<String, Boolean> unknownCards;
+    private final boolean negativeCacheEnabled;
+
+    public CardNumberCache(@Value("${customer.card-cache.maximum-size:100000}") long maximumSize,
+                           @Value("${customer.card-cache.ttl:30m}") Duration ttl,
+                           @Value("${customer.card-cache.negative.enabled:true}") boolean negativeCacheEnabled,
+                           @Value("${customer.card-cache.negative.maximum-size:10000}") long negativeMaximumSize,
+                           @Value("${customer.card-cache.negative.ttl:30s}") Duration negativeTtl,
+                           MeterRegistry meterRegistry) {
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.unknownCards = Caffeine.newBuilder()
+                .maximumSize(negativeMaximumSize)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
+                .build();
+        this.negativeCacheEnabled = negativeCacheEnabled;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, ids, "customer.card-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownCards, "customer.card-id.negative");
+    }
+
+    // Optional.empty() nếu thẻ không tồn tại; loader chỉ được gọi khi cache chưa có câu trả lời
+    public Optional<Long> getCustomerId(String cardNumber, Function<String, Optional<Long>> loader) {
+        if (negativeCacheEnabled && unknownCards.getIfPresent(cardNumber) != null) {
+            return Optional.empty();
+        }
+
+        Long customerId = ids.get(cardNumber, card -> loader.apply(card).orElse(null));
+        if (customerId == null && negativeCacheEnabled) {
+            unknownCards.put(cardNumber, Boolean.TRUE);
+        }
+        return Optional.ofNullable(customerId);
+    }
+
+    // Xoá ngay và xoá lại sau commit: request đọc chen giữa có thể đã nạp lại giá trị cũ trước khi transaction kết thúc
+    public void invalidateAfterCommit(String... cardNumbers) {
+        List<String> cards = Arrays.stream(cardNumbers).filter(Objects::nonNull).toList();
+        if (cards.isEmpty()) return;
+
+        invalidate(cards);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(cards);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        ids.invalidateAll();
+        unknownCards.invalidateAll();
+    }
+
+    private void invalidate(List<String> cardNumbers) {
+        ids.invalidateAll(cardNumbers);
+        unknownCards.invalidateAll(cardNumbers);
+        log.debug("Card cache invalidated {}", cardNumbers);
+    }
+}
@@ -0,0 +1,482 @@
+package com.supermarket.customer_market_service.service;
+
+import com.supermarket.customer_market_service.repository.CustomerRepository;
+import com.supermarket.customer_market_service.repository.projection.CardNumberChangeProjection;
+import com.supermarket.customer_market_service.repository.projection.CardNumberProjection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục trigram trong bộ nhớ cho tìm kiếm mã thẻ theo chuỗi con (thay cho LIKE '%x%' quét cả bảng).
+ * Mỗi mã thẻ có một doc id nội bộ kiểu int; mỗi trigram giữ danh sách doc id tăng dần nên giao nhau bằng binary search.
+ * Query 1-2 ký tự dùng danh sách riêng theo (chuỗi, vị trí khớp đầu tiên); doc id được cấp theo thứ tự mã thẻ
+ * nên chỉ cần đọc limit doc đầu của mỗi vị trí thay vì quét cả chỉ mục.
+ * Nạp toàn bộ khi khởi động và định kỳ theo rebuild-cron; create/update/delete ở instance này cập nhật ngay sau commit,
+ * thay đổi ở instance khác được đồng bộ theo customer.updated_at mỗi sync-interval-ms.
+ * Doc bị xoá/sửa chỉ đánh dấu, khi quá nửa số doc đã chết hoặc có quá nhiều doc chưa theo thứ tự thì nén lại.
+ */
+@Slf4j
+@Component
+public class CardNumberIndex {
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACT_DELETED = 1024;
+    // Doc thêm sau lần sắp xếp gần nhất phải quét hết khi tra query ngắn, nên không để dồn quá nhiều
+    private static final int MAX_UNSORTED = 8192;
+    private static final int SYNC_BATCH_SIZE = 1000;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Khớp ở vị trí 0 (tiền tố) lên đầu, sau đó vị trí khớp càng sớm càng tốt, cuối cùng theo mã thẻ
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::position)
+            .thenComparing(Match::cardNumber);
+
+    private final CustomerRepository customerRepository;
+    private final Duration syncOverlap;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    private Docs docs = new Docs();
+    // Khác null khi đang rebuild: thay đổi áp vào chỉ mục cũ được ghi lại để áp tiếp lên chỉ mục mới
+    private List<Consumer<Docs>> pendingChanges;
+    // updated_at lớn nhất đã đồng bộ
+    private LocalDateTime syncedUntil;
+
+    private record Match(long customerId, String cardNumber, int position) {
+    }
+
+    public CardNumberIndex(CustomerRepository customerRepository,
+                           @Value("${customer.card-index.sync-overlap:1m}") Duration syncOverlap) {
+        this.customerRepository = customerRepository;
+        this.syncOverlap = syncOverlap;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Dựng chỉ mục mới ngoài khoá rồi mới thay, nên tìm kiếm không bị chặn trong lúc đọc cả bảng
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${customer.card-index.rebuild-cron:0 0 * * * *}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Docs rebuilt;
+        LocalDateTime watermark;
+        try {
+            // Lấy mốc trước khi đọc: dòng đổi trong lúc đọc sẽ được sync lần sau bắt lại
+            watermark = customerRepository.findMaxUpdatedAt();
+            List<Long> ids = new ArrayList<>();
+            List<String> cardNumbers = new ArrayList<>();
+            try (Stream<CardNumberProjection> rows = customerRepository.streamCardNumbers()) {
+                rows.forEach(row -> {
+                    ids.add(row.getId());
+                    cardNumbers.add(row.getCardNumber());
+                });
+            }
+            rebuilt = Docs.sorted(ids, cardNumbers);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            pendingChanges = null;
+            docs = rebuilt.compactIfNeeded();
+            syncedUntil = watermark;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Card number index built: {} cards in {} ms", rebuilt.liveCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Áp các khách hàng có updated_at mới hơn mốc đã đồng bộ (trừ đi sync-overlap cho transaction commit muộn).
+     * Khách hàng bị xoá ở instance khác không có dòng để đọc; CustomerService đã lọc id không còn tồn tại,
+     * và lần rebuild kế tiếp sẽ bỏ hẳn chúng khỏi chỉ mục.
+     */
+    @Scheduled(fixedDelayString = "${customer.card-index.sync-interval-ms:30000}")
+    public void sync() {
+        if (!ready) return;
+
+        LocalDateTime since;
+        lock.readLock().lock();
+        try {
+            since = syncedUntil == null ? EPOCH : syncedUntil.minus(syncOverlap);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        LocalDateTime maxSeen = null;
+        long afterId = 0;
+        int applied = 0;
+        List<CardNumberChangeProjection> page;
+        do {
+            page = customerRepository.findCardNumbersChangedAfter(since, afterId, PageRequest.of(0, SYNC_BATCH_SIZE));
+            if (page.isEmpty()) break;
+
+            lock.writeLock().lock();
+            try {
+                for (CardNumberChangeProjection row : page) {
+                    String card = normalize(row.getCardNumber());
+                    if (apply(current -> current.put(row.getId(), card))) {
+                        applied++;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            CardNumberChangeProjection last = page.get(page.size() - 1);
+            since = last.getUpdatedAt();
+            afterId = last.getId();
+            maxSeen = last.getUpdatedAt();
+        } while (page.size() == SYNC_BATCH_SIZE);
+
+        if (maxSeen != null) {
+            lock.writeLock().lock();
+            try {
+                if (syncedUntil == null || maxSeen.isAfter(syncedUntil)) {
+                    syncedUntil = maxSeen;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (applied > 0) {
+            log.debug("Card number index synced {} changed cards", applied);
+        }
+    }
+
+    // Id khách hàng có mã thẻ chứa query, tối đa limit kết quả, đã xếp hạng
+    public List<Long> search(String query, int limit) {
+        String q = normalize(query);
+        if (q == null || q.isEmpty() || limit <= 0) return new ArrayList<>();
+
+        // Heap giữ limit kết quả tốt nhất, phần tử kém nhất ở đỉnh
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        lock.readLock().lock();
+        try {
+            if (q.length() < GRAM) {
+                collectShort(docs, q, top, limit);
+            } else {
+                for (int doc : docs.candidates(q)) {
+                    collect(docs, doc, q, top, limit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<>(top);
+        matches.sort(RANKING);
+        return matches.stream().map(Match::customerId).toList();
+    }
+
+    public void putAfterCommit(Long customerId, String cardNumber) {
+        afterCommit(() -> put(customerId, cardNumber));
+    }
+
+    public void removeAfterCommit(Long customerId) {
+        afterCommit(() -> remove(customerId));
+    }
+
+    public void put(Long customerId, String cardNumber) {
+        String card = normalize(cardNumber);
+        lock.writeLock().lock();
+        try {
+            apply(current -> current.put(customerId, card));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long customerId) {
+        lock.writeLock().lock();
+        try {
+            apply(current -> current.remove(customerId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Gọi khi đang giữ write lock; trả về true nếu chỉ mục thay đổi
+    private boolean apply(Consumer<Docs> change) {
+        int before = docs.docCount + docs.deletedCount;
+        change.accept(docs);
+        boolean changed = docs.docCount + docs.deletedCount != before;
+        // Ghi lại cả thay đổi không làm gì trên chỉ mục cũ: chỉ mục đang dựng có thể đã đọc giá trị cũ hơn
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+        docs = docs.compactIfNeeded();
+        return changed;
+    }
+
+    /**
+     * Query ngắn: duyệt vị trí khớp tăng dần. Trong mỗi vị trí, phần doc đã sắp xếp theo mã thẻ chỉ cần lấy limit doc
+     * còn sống đầu tiên, phần doc thêm sau (tối đa MAX_UNSORTED) thì xét hết. Dừng khi top đã đủ và mọi kết quả trong đó
+     * khớp sớm hơn vị trí đang xét.
+     */
+    private static void collectShort(Docs docs, String q, PriorityQueue<Match> top, int limit) {
+        IntList[] byPosition = docs.shortPostings.get(q);
+        if (byPosition == null) return;
+
+        for (int position = 0; position < byPosition.length; position++) {
+            if (top.size() == limit && top.peek().position() < position) break;
+            IntList list = byPosition[position];
+            if (list == null) continue;
+
+            int split = list.lowerBound(docs.sortedCount);
+            int taken = 0;
+            for (int i = 0; i < split && taken < limit; i++) {
+                if (collect(docs, list.values[i], q, top, limit)) {
+                    taken++;
+                }
+            }
+            for (int i = split; i < list.size; i++) {
+                collect(docs, list.values[i], q, top, limit);
+            }
+        }
+    }
+
+    // Trả về true nếu doc còn sống và chứa q
+    private static boolean collect(Docs docs, int doc, String q, PriorityQueue<Match> top, int limit) {
+        String card = docs.cards[doc];
+        if (card == null) return false;
+        int position = card.indexOf(q);
+        if (position < 0) return false;
+
+        // Top đã đủ và doc này không tốt hơn phần tử kém nhất: bỏ qua, không tạo Match
+        if (top.size() == limit) {
+            Match worst = top.peek();
+            if (position > worst.position()
+                    || (position == worst.position() && card.compareTo(worst.cardNumber()) >= 0)) {
+                return true;
+            }
+        }
+        top.add(new Match(docs.customerIds[doc], card, position));
+        if (top.size() > limit) {
+            top.poll();
+        }
+        return true;
+    }
+
+    private static Set<String> grams(String value, int size) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + size <= value.length(); i++) {
+            grams.add(value.substring(i, i + size));
+        }
+        return grams;
+    }
+
+    private static String normalize(String cardNumber) {
+        return cardNumber == null ? null : cardNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Toàn bộ dữ liệu của một phiên bản chỉ mục; rebuild/compact dựng bản mới rồi thay cả khối
+    private static final class Docs {
+        // doc id → mã thẻ (đã chuẩn hoá) / id khách hàng; cards[doc] == null nghĩa là doc đã bị xoá
+        private String[] cards = new String[1024];
+        private long[] customerIds = new long[1024];
+        private int docCount;
+        private int deletedCount;
+        // Các doc nhỏ hơn sortedCount được cấp id theo thứ tự mã thẻ
+        private int sortedCount;
+        private final Map<Long, Integer> docByCustomer = new HashMap<>();
+        private final Map<String, IntList> postings = new HashMap<>();
+        // Chuỗi 1-2 ký tự → danh sách doc theo vị trí khớp đầu tiên của chuỗi đó trong mã thẻ
+        private final Map<String, IntList[]> shortPostings = new HashMap<>();
+
+        // Chỉ mục mới với doc id theo thứ tự mã thẻ; mã thẻ chưa chuẩn hoá
+        static Docs sorted(List<Long> customerIds, List<String> cardNumbers) {
+            Map<Long, String> byCustomer = new HashMap<>();
+            for (int i = 0; i < customerIds.size(); i++) {
+                String card = normalize(cardNumbers.get(i));
+                if (customerIds.get(i) != null && card != null && !card.isEmpty()) {
+                    byCustomer.put(customerIds.get(i), card);
+                }
+            }
+            return sortedOf(byCustomer);
+        }
+
+        private static Docs sortedOf(Map<Long, String> byCustomer) {
+            List<Map.Entry<Long, String>> entries = new ArrayList<>(byCustomer.entrySet());
+            entries.sort(Map.Entry.<Long, String>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+            Docs docs = new Docs();
+            for (Map.Entry<Long, String> entry : entries) {
+                docs.add(entry.getKey(), entry.getValue());
+            }
+            docs.sortedCount = docs.docCount;
+            return docs;
+        }
+
+        int liveCount() {
+            return docCount - deletedCount;
+        }
+
+        // Không đổi gì nếu mã thẻ giữ nguyên, để sync đọc lại cùng một dòng không tạo tombstone
+        void put(Long customerId, String card) {
+            Integer existing = docByCustomer.get(customerId);
+            if (existing != null && Objects.equals(cards[existing], card)) return;
+            remove(customerId);
+            add(customerId, card);
+        }
+
+        // Chỉ đánh dấu; doc chết vẫn còn trong postings và bị bỏ qua khi so khớp
+        void remove(Long customerId) {
+            Integer doc = docByCustomer.remove(customerId);
+            if (doc != null) {
+                cards[doc] = null;
+                deletedCount++;
+            }
+        }
+
+        Docs compactIfNeeded() {
+            boolean manyDeleted = deletedCount >= MIN_COMPACT_DELETED && deletedCount * 2 > docCount;
+            boolean manyUnsorted = docCount - sortedCount >= MAX_UNSORTED;
+            if (!manyDeleted && !manyUnsorted) return this;
+
+            Map<Long, String> live = new HashMap<>();
+            for (int doc = 0; doc < docCount; doc++) {
+                if (cards[doc] != null) {
+                    live.put(customerIds[doc], cards[doc]);
+                }
+            }
+            Docs compacted = sortedOf(live);
+            log.debug("Card number index compacted to {} cards", compacted.docCount);
+            return compacted;
+        }
+
+        // Các doc chứa đủ mọi trigram của query: duyệt danh sách ngắn nhất, kiểm tra các danh sách còn lại bằng binary search
+        List<Integer> candidates(String q) {
+            List<IntList> lists = new ArrayList<>();
+            for (String gram : grams(q, GRAM)) {
+                IntList list = postings.get(gram);
+                if (list == null) return new ArrayList<>();
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            IntList smallest = lists.get(0);
+            List<Integer> docs = new ArrayList<>();
+            for (int i = 0; i < smallest.size; i++) {
+                int doc = smallest.values[i];
+                boolean inAll = true;
+                for (int j = 1; j < lists.size() && inAll; j++) {
+                    inAll = lists.get(j).contains(doc);
+                }
+                if (inAll) {
+                    docs.add(doc);
+                }
+            }
+            return docs;
+        }
+
+        private void add(Long customerId, String card) {
+            if (customerId == null || card == null || card.isEmpty()) return;
+
+            if (docCount == cards.length) {
+                cards = Arrays.copyOf(cards, docCount * 2);
+                customerIds = Arrays.copyOf(customerIds, docCount * 2);
+            }
+            int doc = docCount++;
+            cards[doc] = card;
+            customerIds[doc] = customerId;
+            docByCustomer.put(customerId, doc);
+            // doc id luôn tăng nên mỗi danh sách vẫn được sắp xếp
+            for (String gram : grams(card, GRAM)) {
+                postings.computeIfAbsent(gram, key -> new IntList()).add(doc);
+            }
+            for (int size = 1; size < GRAM; size++) {
+                for (String gram : grams(card, size)) {
+                    int position = card.indexOf(gram);
+                    IntList[] byPosition = shortPostings.get(gram);
+                    if (byPosition == null || byPosition.length <= position) {
+                        byPosition = byPosition == null
+                                ? new IntList[position + 1]
+                                : Arrays.copyOf(byPosition, position + 1);
+                        shortPostings.put(gram, byPosition);
+                    }
+                    if (byPosition[position] == null) {
+                        byPosition[position] = new IntList();
+                    }
+                    byPosition[position].add(doc);
+                }
+            }
+        }
+    }
+
+    // Danh sách int mở rộng được, tránh boxing Integer cho hàng triệu phần tử
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        // Chỉ số phần tử đầu tiên >= value
+        int lowerBound(int value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -1,23 +1,60 @@
 package com.supermarket.customer_market_service.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.customer_market_service.dto.request.AddPointsRequest;
 import com.supermarket.customer_market_service.dto.request.CustomerRequest;
+import com.supermarket.customer_market_service.dto.request.PointsDeltaRequest;
+import com.supermarket.customer_market_service.dto.response.AddPointsResponse;
+import com.supermarket.customer_market_service.dto.response.BulkAddPointsResponse;
+import com.supermarket.customer_market_service.dto.response.CustomerPageResponse;
 import com.supermarket.customer_market_service.dto.response.CustomerResponse;
+import com.supermarket.customer_market_service.dto.response.CustomerScrollResponse;
 import com.supermarket.customer_market_service.mapper.CustomerMapper;
+import com.supermarket.customer_market_service.model.AccrualStatus;
 import com.supermarket.customer_market_service.model.Customer;
 import com.supermarket.customer_market_service.repository.CustomerRepository;
+import com.supermarket.customer_market_service.repository.PointsAccrualRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerService {
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final String CSV_HEADER =
+            "id,fullName,email,cardNumber,gender,dateOfBirth,rewardPoints,tierPoints,active,membershipTier\n";
 
     private final CustomerRepository customerRepository;
     private final CustomerMapper customerMapper;
+    private final PointsAccrualRepository pointsAccrualRepository;
+    private final CardNumberCache cardNumberCache;
+    private final CardNumberIndex cardNumberIndex;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public List<CustomerResponse> getAllCustomers() {
         return customerRepository.findAll().stream()
@@ -25,31 +62,175 @@ public class CustomerService {
                 .collect(Collectors.toList());
     }
 
+    // GET CUSTOMER PAGE (offset, có tổng số bản ghi cho bảng phân trang)
+    public CustomerPageResponse getCustomerPage(int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Page<Customer> customers = customerRepository.findAll(
+                PageRequest.of(Math.max(page, 0), pageSize, Sort.by("id")));
+
+        return CustomerPageResponse.builder()
+                .customers(customers.map(customerMapper::toCustomerResponse).getContent())
+                .page(customers.getNumber())
+                .size(customers.getSize())
+                .totalElements(customers.getTotalElements())
+                .totalPages(customers.getTotalPages())
+                .build();
+    }
+
+    // SCROLL CUSTOMERS (keyset: id ASC, không COUNT và không OFFSET nên trang sâu vẫn nhanh)
+    public CustomerScrollResponse scrollCustomers(Long cursorId, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // Lấy dư một bản ghi để biết còn trang sau hay không
+        List<Customer> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(
+                cursorId == null ? 0L : cursorId, PageRequest.of(0, pageSize + 1));
+
+        boolean hasNext = customers.size() > pageSize;
+        if (hasNext) {
+            customers = customers.subList(0, pageSize);
+        }
+
+        return CustomerScrollResponse.builder()
+                .customers(customers.stream().map(customerMapper::toCustomerResponse).collect(Collectors.toList()))
+                .nextCursorId(hasNext ? customers.get(customers.size() - 1).getId() : null)
+                .build();
+    }
+
+    // EXPORT CUSTOMERS (CSV hoặc NDJSON, đọc bằng stream nên bộ nhớ không tăng theo số khách hàng)
+    @Transactional(readOnly = true)
+    public void exportCustomers(boolean csv, OutputStream outputStream) throws IOException {
+        if (csv) {
+            outputStream.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        try (Stream<Customer> customers = customerRepository.streamAllOrderById()) {
+            List<Customer> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            Iterator<Customer> iterator = customers.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    writeChunk(chunk, csv, outputStream);
+                    chunk.clear();
+                }
+            }
+            writeChunk(chunk, csv, outputStream);
+        }
+    }
+
+    private void writeChunk(List<Customer> chunk, boolean csv, OutputStream outputStream) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (Customer customer : chunk) {
+            CustomerResponse response = customerMapper.toCustomerResponse(customer);
+            if (csv) {
+                outputStream.write(toCsvLine(response).getBytes(StandardCharsets.UTF_8));
+            } else {
+                outputStream.write(objectMapper.writeValueAsBytes(response));
+                outputStream.write('\n');
+            }
+        }
+        outputStream.flush();
+        // Bỏ các entity đã ghi để persistence context không phình theo số khách hàng
+        entityManager.clear();
+    }
+
+    private String toCsvLine(CustomerResponse customer) {
+        return Stream.of(customer.getId(), customer.getFullName(), customer.getEmail(), customer.getCardNumber(),
+                        customer.getGender(), customer.getDateOfBirth(), customer.getRewardPoints(),
+                        customer.getTierPoints(), customer.getActive(), customer.getMembershipTier())
+                .map(this::csvField)
+                .collect(Collectors.joining(",", "", "\n"));
+    }
+
+    private String csvField(Object value) {
+        if (value == null) return "";
+        String text = value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
     public CustomerResponse getCustomerById(Long id) {
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy khách hàng với ID: " + id));
         return customerMapper.toCustomerResponse(customer);
     }
 
-    public List<CustomerResponse> searchByCardNumber(String cardNumber) {
-        return customerRepository.findByCardNumberContainingIgnoreCase(cardNumber).stream()
+    // Tra theo chỉ mục trigram, kết quả khớp tiền tố đứng đầu
+    public List<CustomerResponse> searchByCardNumber(String cardNumber, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        if (!cardNumberIndex.isReady()) {
+            return customerRepository.findByCardNumberContainingIgnoreCase(cardNumber, PageRequest.of(0, size)).stream()
+                    .map(customerMapper::toCustomerResponse)
+                    .collect(Collectors.toList());
+        }
+
+        List<Long> ids = cardNumberIndex.search(cardNumber, size);
+        Map<Long, Customer> customers = customerRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        return ids.stream()
+                .map(customers::get)
+                .filter(Objects::nonNull)
                 .map(customerMapper::toCustomerResponse)
                 .collect(Collectors.toList());
     }
 
     public Long getCustomerIdByCardNumber(String cardNumber) {
-        Customer customer = customerRepository.findByCardNumber(cardNumber)
+        return cardNumberCache.getCustomerId(cardNumber, customerRepository::findIdByCardNumber)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy khách hàng với mã số thẻ: " + cardNumber));
-        return customer.getId();
     }
 
+    @Transactional
     public void addRewardPointsAndTierPoints(Long customerId, Integer rewardPoints, Integer tierPoints) {
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy khách hàng với ID: " + customerId));
+        if (customerRepository.addPoints(customerId, rewardPoints, tierPoints) == 0) {
+            throw new RuntimeException("Không tìm thấy khách hàng với ID: " + customerId);
+        }
+    }
 
-        customer.setRewardPoints(customer.getRewardPoints() + rewardPoints);
-        customer.setTierPoints(customer.getTierPoints() + tierPoints);
-        customerRepository.save(customer);
+    // Cộng điểm hàng loạt cho back-office (replay, đối soát): một batch UPDATE duy nhất, không đọc entity
+    @Transactional
+    public BulkAddPointsResponse addPointsBulk(List<PointsDeltaRequest> deltas) {
+        int[] counts = customerRepository.batchAddPoints(deltas);
+        int updated = 0;
+        List<Long> notFound = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            // Driver có thể trả SUCCESS_NO_INFO (-2) khi gộp batch, coi như đã cập nhật
+            if (counts[i] == 0) {
+                notFound.add(deltas.get(i).getCustomerId());
+            } else {
+                updated++;
+            }
+        }
+        return new BulkAddPointsResponse(updated, notFound);
+    }
+
+    // Cộng điểm theo lô từ outbox của transaction service.
+    // Mỗi idempotency key chỉ được áp dụng một lần, gửi lại (retry) trả về DUPLICATE mà không cộng thêm
+    @Transactional
+    public List<AddPointsResponse> addPointsBatch(List<AddPointsRequest> requests) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> existingIds = customerRepository.findExistingIds(requests.stream()
+                .map(AddPointsRequest::getCustomerId)
+                .collect(Collectors.toSet()));
+
+        List<AddPointsResponse> responses = new ArrayList<>(requests.size());
+        List<PointsDeltaRequest> deltas = new ArrayList<>();
+        for (AddPointsRequest request : requests) {
+            if (!existingIds.contains(request.getCustomerId())) {
+                responses.add(new AddPointsResponse(request.getIdempotencyKey(), AccrualStatus.CUSTOMER_NOT_FOUND));
+                continue;
+            }
+            int recorded = pointsAccrualRepository.insertIfAbsent(request.getIdempotencyKey(), request.getCustomerId(),
+                    request.getRewardPoints(), request.getTierPoints(), now);
+            if (recorded == 0) {
+                responses.add(new AddPointsResponse(request.getIdempotencyKey(), AccrualStatus.DUPLICATE));
+                continue;
+            }
+            deltas.add(new PointsDeltaRequest(request.getCustomerId(), request.getRewardPoints(), request.getTierPoints()));
+            responses.add(new AddPointsResponse(request.getIdempotencyKey(), AccrualStatus.APPLIED));
+        }
+        customerRepository.batchAddPoints(deltas);
+        return responses;
     }
 
     @Transactional
@@ -68,6 +249,9 @@ public class CustomerService {
 
         Customer customer = customerMapper.toCustomer(request);
         Customer savedCustomer = customerRepository.save(customer);
+        // Thẻ mới có thể đang nằm trong negative cache
+        cardNumberCache.invalidateAfterCommit(savedCustomer.getCardNumber());
+        cardNumberIndex.putAfterCommit(savedCustomer.getId(), savedCustomer.getCardNumber());
         return customerMapper.toCustomerResponse(savedCustomer);
     }
 
@@ -90,8 +274,12 @@ public class CustomerService {
             throw new RuntimeException("Mã số thẻ đã tồn tại");
         }
 
+        String oldCardNumber = customer.getCardNumber();
         customerMapper.updateCustomerFromRequest(request, customer);
         Customer updatedCustomer = customerRepository.save(customer);
+        // Tiền tố hạng có thể đổi nên cả mã thẻ cũ và mới đều phải xoá khỏi cache
+        cardNumberCache.invalidateAfterCommit(oldCardNumber, updatedCustomer.getCardNumber());
+        cardNumberIndex.putAfterCommit(updatedCustomer.getId(), updatedCustomer.getCardNumber());
         return customerMapper.toCustomerResponse(updatedCustomer);
     }
 
@@ -123,9 +311,10 @@ public class CustomerService {
 
     @Transactional
     public void deleteCustomer(Long id) {
-        if (!customerRepository.existsById(id)) {
-            throw new RuntimeException("Không tìm thấy khách hàng với ID: " + id);
-        }
-        customerRepository.deleteById(id);
+        Customer customer = customerRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy khách hàng với ID: " + id));
+        customerRepository.delete(customer);
+        cardNumberCache.invalidateAfterCommit(customer.getCardNumber());
+        cardNumberIndex.removeAfterCommit(id);
     }
 }
@@ -0,0 +1,46 @@
+package com.supermarket.customer_market_service.service;
+
+import com.supermarket.customer_market_service.repository.PointsAccrualRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Xoá định kỳ sổ points_accrual để bảng không phình mãi theo số hoá đơn.
+ * Chỉ xoá bản ghi cũ hơn retention, khi transaction service chắc chắn không còn gửi lại idempotency key đó.
+ */
+@Slf4j
+@Component
+public class PointsAccrualPurger {
+    private static final int BATCH_SIZE = 1000;
+
+    private final PointsAccrualRepository pointsAccrualRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+
+    public PointsAccrualPurger(PointsAccrualRepository pointsAccrualRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${customer.points-accrual.retention:30d}") Duration retention) {
+        this.pointsAccrualRepository = pointsAccrualRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+    }
+
+    // Mỗi lô một transaction ngắn để không giữ khoá lâu trên bảng đang được addPoints ghi vào
+    @Scheduled(cron = "${customer.points-accrual.purge-cron:0 0 4 * * *}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = transactionTemplate.execute(status -> pointsAccrualRepository.deleteAppliedBefore(cutoff, BATCH_SIZE));
+            total += deleted;
+        } while (deleted == BATCH_SIZE);
+        log.info("Purged {} points accrual entries older than {}", total, cutoff);
+    }
+}
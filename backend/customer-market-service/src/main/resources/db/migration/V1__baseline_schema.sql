@@ -0,0 +1,14 @@
+-- Schema gốc của customer service (trước đây tạo tay), để DB mới dựng được từ đầu.
+-- IF NOT EXISTS: DB đang chạy đã có bảng thì giữ nguyên
+CREATE TABLE IF NOT EXISTS customer (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    email         VARCHAR(255),
+    full_name     VARCHAR(255),
+    card_number   VARCHAR(255),
+    gender        VARCHAR(255),
+    date_of_birth DATE,
+    reward_points INT,
+    tier_points   INT,
+    active        BIT(1),
+    PRIMARY KEY (id)
+);
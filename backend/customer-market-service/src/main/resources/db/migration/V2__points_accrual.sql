@@ -0,0 +1,10 @@
+-- Sổ idempotency cho /customers/addPoints/batch; applied_at để PointsAccrualPurger xoá bản ghi cũ
+CREATE TABLE IF NOT EXISTS points_accrual (
+    idempotency_key VARCHAR(64) NOT NULL,
+    customer_id     BIGINT,
+    reward_points   INT,
+    tier_points     INT,
+    applied_at      DATETIME(6),
+    PRIMARY KEY (idempotency_key),
+    INDEX idx_points_accrual_applied_at (applied_at)
+);
@@ -0,0 +1,5 @@
+-- updated_at do MySQL tự gán khi insert/update, để CardNumberIndex của mỗi instance đồng bộ thay đổi từ instance khác.
+-- Dòng đang có nhận thời điểm chạy migration
+ALTER TABLE customer
+    ADD COLUMN updated_at DATETIME(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6),
+    ADD INDEX idx_customer_updated_at (updated_at, id);
@@ -0,0 +1,180 @@
+package com.supermarket.customer_market_service.service;
+
+import com.supermarket.customer_market_service.repository.CustomerRepository;
+import com.supermarket.customer_market_service.repository.projection.CardNumberChangeProjection;
+import com.supermarket.customer_market_service.repository.projection.CardNumberProjection;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Every query, short or trigram-backed, must return what a linear scan ranked by (match position, card number) returns,
+ * however the index got its content: the initial rebuild, local writes, or the incremental sync.
+ */
+class CardNumberIndexTests {
+    private static final String[] QUERIES = {"C", "D", "0", "1", "9", "CA", "AR", "RD", "00", "01", "12", "D0", "X",
+            "CCARD", "ARD0", "001", "0012", "card1", " gcard ", "ZZZ"};
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+    private final CardNumberIndex index = new CardNumberIndex(customerRepository, Duration.ofMinutes(1));
+
+    @Test
+    void shortAndLongQueriesRankLikeALinearScan() {
+        Map<Long, String> cards = new LinkedHashMap<>();
+        Random random = new Random(42);
+        String tiers = "CSGPD";
+        Set<String> used = new HashSet<>();
+        for (long id = 1; id <= 3000; id++) {
+            String card;
+            do {
+                card = tiers.charAt(random.nextInt(tiers.length())) + "CARD" + String.format("%06d", random.nextInt(20000));
+            } while (!used.add(card));
+            cards.put(id, card);
+        }
+        rebuildWith(cards);
+
+        for (String query : QUERIES) {
+            for (int limit : new int[]{1, 5, 100}) {
+                assertEquals(linearScan(cards, query, limit), index.search(query, limit), query + " / " + limit);
+            }
+        }
+    }
+
+    @Test
+    void localWritesAfterTheRebuildAreSearchableInRankOrder() {
+        Map<Long, String> cards = new LinkedHashMap<>();
+        for (long id = 1; id <= 50; id++) {
+            cards.put(id, "CCARD" + String.format("%04d", id * 7));
+        }
+        rebuildWith(cards);
+
+        // Appended docs are out of card order; they must still outrank sorted docs with a later card number
+        cards.put(1000L, "ACARD0001");
+        index.put(1000L, "ACARD0001");
+        cards.put(3L, "DCARD0021");
+        index.put(3L, "DCARD0021");
+        cards.remove(5L);
+        index.remove(5L);
+        cards.put(1001L, "CCARD0000");
+        index.put(1001L, "ccard0000");
+
+        for (String query : QUERIES) {
+            assertEquals(linearScan(cards, query, 5), index.search(query, 5), query);
+            assertEquals(linearScan(cards, query, 100), index.search(query, 100), query);
+        }
+    }
+
+    @Test
+    void manyUpdatesCompactWithoutChangingResults() {
+        Map<Long, String> cards = new LinkedHashMap<>();
+        for (long id = 1; id <= 5000; id++) {
+            cards.put(id, "CCARD" + String.format("%06d", id));
+        }
+        rebuildWith(cards);
+
+        // Enough tombstones and unsorted appends to trigger both compaction rules
+        for (long id = 1; id <= 13000; id++) {
+            if (id <= 4000) {
+                cards.remove(id);
+                index.remove(id);
+            } else {
+                String card = "SCARD" + String.format("%06d", 20000 - id);
+                cards.put(id, card);
+                index.put(id, card);
+            }
+        }
+
+        for (String query : QUERIES) {
+            assertEquals(linearScan(cards, query, 10), index.search(query, 10), query);
+        }
+    }
+
+    @Test
+    void syncPicksUpChangesMadeByOtherInstances() {
+        LocalDateTime built = LocalDateTime.of(2026, 1, 1, 8, 0);
+        Map<Long, String> cards = new LinkedHashMap<>(Map.of(1L, "CCARD0001", 2L, "CCARD0002"));
+        when(customerRepository.findMaxUpdatedAt()).thenReturn(built);
+        rebuildWith(cards);
+
+        List<CardNumberChangeProjection> changes = List.of(
+                change(2L, "GCARD0002", built.plusSeconds(5)),
+                change(3L, "CCARD0003", built.plusSeconds(5)),
+                change(1L, "CCARD0001", built.plusSeconds(6)));
+        when(customerRepository.findCardNumbersChangedAfter(any(), anyLong(), any())).thenReturn(changes);
+        index.sync();
+
+        assertEquals(List.of(3L), index.search("CCARD0003", 10));
+        assertEquals(List.of(2L), index.search("GC", 10));
+        assertTrue(index.search("CCARD0002", 10).isEmpty());
+        assertEquals(List.of(1L, 3L), index.search("CC", 10));
+    }
+
+    @Test
+    void syncIsSkippedUntilTheFirstRebuild() {
+        index.sync();
+
+        assertTrue(index.search("C", 10).isEmpty());
+    }
+
+    private void rebuildWith(Map<Long, String> cards) {
+        List<CardNumberProjection> rows = new ArrayList<>();
+        cards.forEach((id, card) -> rows.add(row(id, card)));
+        when(customerRepository.streamCardNumbers()).thenAnswer(invocation -> rows.stream());
+        index.rebuild();
+    }
+
+    // The ranking CardNumberIndex documents, computed the slow way
+    private static List<Long> linearScan(Map<Long, String> cards, String query, int limit) {
+        String q = query.trim().toUpperCase(Locale.ROOT);
+        return cards.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().toUpperCase(Locale.ROOT)))
+                .filter(entry -> entry.getValue().contains(q))
+                .sorted(Comparator.<Map.Entry<Long, String>>comparingInt(entry -> entry.getValue().indexOf(q))
+                        .thenComparing(Map.Entry::getValue))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static CardNumberProjection row(Long id, String cardNumber) {
+        return new CardNumberProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCardNumber() {
+                return cardNumber;
+            }
+        };
+    }
+
+    private static CardNumberChangeProjection change(Long id, String cardNumber, LocalDateTime updatedAt) {
+        return new CardNumberChangeProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCardNumber() {
+                return cardNumber;
+            }
+
+            @Override
+            public LocalDateTime getUpdatedAt() {
+                return updatedAt;
+            }
+        };
+    }
+}
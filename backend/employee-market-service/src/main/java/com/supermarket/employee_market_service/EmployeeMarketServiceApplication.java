@@ -2,8 +2,10 @@ package com.supermarket.employee_market_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class EmployeeMarketServiceApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,332 @@
+package com.supermarket.employee_market_service.service;
+
+import com.supermarket.employee_market_service.dto.response.EmployeeCredentials;
+import com.supermarket.employee_market_service.exception.EmployeeNotFoundException;
+import com.supermarket.employee_market_service.model.Employee;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.GroupResource;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.RoleResource;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Bản sao cục bộ danh bạ nhân viên (user, chức vụ, original_username / original_password) lấy từ Keycloak.
+ * Đọc hoàn toàn từ bộ nhớ; nạp lại toàn bộ theo chu kỳ, các thao tác ghi của EmployeeService cập nhật trực tiếp.
+ * Id chưa có trong danh bạ được đọc xuyên xuống Keycloak rồi lưu lại.
+ */
+@Slf4j
+@Component
+public class EmployeeDirectory {
+    public static final List<String> VALID_ROLES = Arrays.asList("CASHIER", "WAREHOUSE", "MARKETING", "ADMIN");
+
+    private final Keycloak keycloak;
+    private final String realm;
+    private final int pageSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // Thời điểm ghi cục bộ gần nhất theo id, để lần nạp lại đang chạy không ghi đè dữ liệu mới hơn
+    private final Map<String, Long> localWrites = new ConcurrentHashMap<>();
+
+    private record Entry(String id, String firstName, String lastName, String email, boolean enabled,
+                         String username, String originalUsername, String originalPassword, String role) {
+    }
+
+    public EmployeeDirectory(Keycloak keycloak,
+                             @Value("${keycloak.realm}") String realm,
+                             @Value("${keycloak.admin.page-size:100}") int pageSize) {
+        this.keycloak = keycloak;
+        this.realm = realm;
+        this.pageSize = pageSize;
+    }
+
+    // Nhân viên không phải ADMIN
+    public List<Employee> findAll() {
+        ensureLoaded();
+        return entries.values().stream()
+                .filter(entry -> !"ADMIN".equals(entry.role()))
+                .sorted(Comparator.comparing(Entry::username, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(this::toEmployee)
+                .collect(Collectors.toList());
+    }
+
+    public Employee findById(String userId) {
+        return toEmployee(getOrLoad(userId));
+    }
+
+    public EmployeeCredentials findCredentials(String userId) {
+        Entry entry = getOrLoad(userId);
+        return new EmployeeCredentials(
+                entry.id(),
+                fullName(entry),
+                entry.email(),
+                entry.role(),
+                entry.enabled(),
+                entry.originalUsername() != null ? entry.originalUsername() : entry.username(),
+                entry.originalPassword() != null ? entry.originalPassword() : "********"
+        );
+    }
+
+    // Ghi trực tiếp sau khi create / update / resetPassword thành công trên Keycloak
+    public void put(UserRepresentation user, String role) {
+        store(toEntry(user, role != null && !role.isEmpty() ? role : "NONE"));
+    }
+
+    public void remove(String userId) {
+        lock.lock();
+        try {
+            localWrites.put(userId, System.nanoTime());
+            entries.remove(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Keycloak chưa sẵn sàng: lần đọc đầu tiên hoặc lần refresh kế tiếp sẽ nạp lại
+            log.warn("Employee directory warm-up failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${employee.directory.refresh-interval-ms:60000}",
+            initialDelayString = "${employee.directory.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // Giữ bản cũ, thử lại ở chu kỳ sau
+            log.warn("Employee directory refresh failed: {}", e.getMessage());
+        }
+    }
+
+    // Nạp lại toàn bộ: user theo trang + thành viên hiệu lực của từng role, số lời gọi không phụ thuộc số nhân viên
+    public void refresh() {
+        long startedAt = System.nanoTime();
+        RealmResource realmResource = keycloak.realm(realm);
+
+        Map<String, Set<String>> rolesByUser = effectiveRolesByUser(realmResource);
+
+        Map<String, Entry> fresh = new ConcurrentHashMap<>();
+        for (UserRepresentation user : page((first, max) -> realmResource.users().list(first, max))) {
+            String role = resolveRole(rolesByUser.getOrDefault(user.getId(), Collections.emptySet()));
+            fresh.put(user.getId(), toEntry(user, role));
+        }
+
+        lock.lock();
+        try {
+            // Giữ các thay đổi cục bộ xảy ra trong lúc đang nạp
+            Map<String, Entry> current = entries;
+            localWrites.forEach((id, writtenAt) -> {
+                if (writtenAt - startedAt >= 0) {
+                    Entry entry = current.get(id);
+                    if (entry != null) {
+                        fresh.put(id, entry);
+                    } else {
+                        fresh.remove(id);
+                    }
+                }
+            });
+            localWrites.values().removeIf(writtenAt -> writtenAt - startedAt < 0);
+            entries = fresh;
+            loaded = true;
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Employee directory refreshed: {} users in {} ms",
+                fresh.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            refresh();
+        }
+    }
+
+    private Entry getOrLoad(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            return entry;
+        }
+
+        try {
+            RealmResource realmResource = keycloak.realm(realm);
+            UserRepresentation user = realmResource.users().get(userId).toRepresentation();
+            if (user == null) {
+                throw new EmployeeNotFoundException(userId);
+            }
+            List<RoleRepresentation> roles = realmResource.users().get(userId).roles().realmLevel().listEffective();
+            String role = resolveRole(roles.stream().map(RoleRepresentation::getName).collect(Collectors.toSet()));
+            return store(toEntry(user, role));
+        } catch (jakarta.ws.rs.NotFoundException e) {
+            throw new EmployeeNotFoundException(userId);
+        }
+    }
+
+    private Entry store(Entry entry) {
+        lock.lock();
+        try {
+            localWrites.put(entry.id(), System.nanoTime());
+            entries.put(entry.id(), entry);
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+
+    // ADMIN được ưu tiên để tài khoản quản trị không lọt vào danh sách nhân viên
+    static String resolveRole(Set<String> roleNames) {
+        if (roleNames.contains("ADMIN")) return "ADMIN";
+        return VALID_ROLES.stream().filter(roleNames::contains).findFirst().orElse("NONE");
+    }
+
+    /**
+     * Role hiệu lực của mọi user, cùng nghĩa với realmLevel().listEffective() mà getOrLoad dùng:
+     * gán trực tiếp, qua group (kể cả group cha) và qua composite role (realm lẫn client) chứa role đó.
+     * Số lời gọi phụ thuộc số role / group trong realm, không phụ thuộc số nhân viên.
+     */
+    private Map<String, Set<String>> effectiveRolesByUser(RealmResource realmResource) {
+        Map<String, List<RoleRef>> parents = compositeParents(realmResource);
+
+        Map<String, Set<String>> rolesByUser = new HashMap<>();
+        for (String role : VALID_ROLES) {
+            RoleRepresentation representation;
+            try {
+                representation = realmResource.roles().get(role).toRepresentation();
+            } catch (jakarta.ws.rs.NotFoundException e) {
+                // Role chưa được tạo trong realm
+                continue;
+            }
+            for (String userId : effectiveMembers(realmResource, new RoleRef(representation.getId(), role, null), parents)) {
+                rolesByUser.computeIfAbsent(userId, id -> new HashSet<>()).add(role);
+            }
+        }
+        return rolesByUser;
+    }
+
+    // Role (realm hoặc client); clientId là id nội bộ của client, null với realm role
+    private record RoleRef(String id, String name, String clientId) {
+    }
+
+    // role id → các composite role chứa trực tiếp role đó
+    private Map<String, List<RoleRef>> compositeParents(RealmResource realmResource) {
+        List<RoleRef> composites = new ArrayList<>();
+        for (RoleRepresentation role : realmResource.roles().list()) {
+            if (role.isComposite()) {
+                composites.add(new RoleRef(role.getId(), role.getName(), null));
+            }
+        }
+        for (ClientRepresentation client : realmResource.clients().findAll()) {
+            for (RoleRepresentation role : realmResource.clients().get(client.getId()).roles().list()) {
+                if (role.isComposite()) {
+                    composites.add(new RoleRef(role.getId(), role.getName(), client.getId()));
+                }
+            }
+        }
+
+        Map<String, List<RoleRef>> parents = new HashMap<>();
+        for (RoleRef composite : composites) {
+            for (RoleRepresentation child : roleResource(realmResource, composite).getRoleComposites()) {
+                parents.computeIfAbsent(child.getId(), id -> new ArrayList<>()).add(composite);
+            }
+        }
+        return parents;
+    }
+
+    // User có role qua bất kỳ role nào chứa nó (kể cả chính nó), gán trực tiếp hoặc qua group
+    private Set<String> effectiveMembers(RealmResource realmResource, RoleRef role, Map<String, List<RoleRef>> parents) {
+        Set<String> members = new HashSet<>();
+        Set<String> visitedRoles = new HashSet<>();
+        Set<String> visitedGroups = new HashSet<>();
+        Deque<RoleRef> holders = new ArrayDeque<>(List.of(role));
+        while (!holders.isEmpty()) {
+            RoleRef holder = holders.poll();
+            if (!visitedRoles.add(holder.id())) continue;
+
+            RoleResource resource = roleResource(realmResource, holder);
+            page((first, max) -> resource.getUserMembers(first, max))
+                    .forEach(user -> members.add(user.getId()));
+            for (GroupRepresentation group : page((first, max) -> new ArrayList<>(resource.getRoleGroupMembers(first, max)))) {
+                addGroupMembers(realmResource, group.getId(), members, visitedGroups);
+            }
+            holders.addAll(parents.getOrDefault(holder.id(), Collections.emptyList()));
+        }
+        return members;
+    }
+
+    // Thành viên group kế thừa role của group đó, thành viên group con cũng vậy
+    private void addGroupMembers(RealmResource realmResource, String groupId, Set<String> members, Set<String> visitedGroups) {
+        if (!visitedGroups.add(groupId)) return;
+        GroupResource group = realmResource.groups().group(groupId);
+        page((first, max) -> group.members(first, max))
+                .forEach(user -> members.add(user.getId()));
+        for (GroupRepresentation child : page((first, max) -> group.getSubGroups(first, max, true))) {
+            addGroupMembers(realmResource, child.getId(), members, visitedGroups);
+        }
+    }
+
+    private RoleResource roleResource(RealmResource realmResource, RoleRef role) {
+        return role.clientId() == null
+                ? realmResource.roles().get(role.name())
+                : realmResource.clients().get(role.clientId()).roles().get(role.name());
+    }
+
+    private <T> List<T> page(BiFunction<Integer, Integer, List<T>> fetch) {
+        List<T> items = new ArrayList<>();
+        List<T> page;
+        do {
+            page = fetch.apply(items.size(), pageSize);
+            items.addAll(page);
+        } while (page.size() == pageSize);
+        return items;
+    }
+
+    private Entry toEntry(UserRepresentation user, String role) {
+        return new Entry(
+                user.getId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getEmail(),
+                Boolean.TRUE.equals(user.isEnabled()),
+                user.getUsername(),
+                attribute(user, "original_username"),
+                attribute(user, "original_password"),
+                role
+        );
+    }
+
+    private String attribute(UserRepresentation user, String name) {
+        Map<String, List<String>> attributes = user.getAttributes();
+        if (attributes == null || attributes.get(name) == null || attributes.get(name).isEmpty()) {
+            return null;
+        }
+        return attributes.get(name).get(0);
+    }
+
+    private Employee toEmployee(Entry entry) {
+        return new Employee(entry.id(), fullName(entry), entry.email(), entry.role(), entry.enabled());
+    }
+
+    private String fullName(Entry entry) {
+        return entry.firstName() + " " + entry.lastName();
+    }
+}
@@ -17,8 +17,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.AbstractMap;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -28,51 +26,19 @@ import java.util.stream.Collectors;
 public class EmployeeService {
 
     private final Keycloak keycloak;
+    private final EmployeeDirectory employeeDirectory;
 
     @Value("${keycloak.realm}")
     private String realm;
 
-    private static final List<String> VALID_ROLES = Arrays.asList("CASHIER", "WAREHOUSE", "MARKETING", "ADMIN");
+    private static final List<String> VALID_ROLES = EmployeeDirectory.VALID_ROLES;
 
     public List<Employee> getAllEmployees() {
-        RealmResource realmResource = keycloak.realm(realm);
-        UsersResource usersResource = realmResource.users();
-
-        return usersResource.list().stream()
-                .map(user -> {
-                    String role = getUserRole(realmResource, user.getId());
-                    return new AbstractMap.SimpleEntry<>(user, role);
-                })
-                .filter(entry -> !"ADMIN".equalsIgnoreCase(entry.getValue()))
-                .map(entry -> {
-                    UserRepresentation user = entry.getKey();
-                    String role = entry.getValue();
-                    return new Employee(
-                            user.getId(),
-                            user.getFirstName() + " " + user.getLastName(),
-                            user.getEmail(),
-                            role,
-                            user.isEnabled()
-                    );
-                })
-                .collect(Collectors.toList());
+        return employeeDirectory.findAll();
     }
 
-
     public Employee getEmployeeById(String userId) {
-        RealmResource realmResource = keycloak.realm(realm);
-        UserResource userResource = realmResource.users().get(userId);
-        UserRepresentation user = userResource.toRepresentation();
-
-        String role = getUserRole(realmResource, userId);
-
-        return new Employee(
-                user.getId(),
-                user.getFirstName() + " " + user.getLastName(),
-                user.getEmail(),
-                role,
-                user.isEnabled()
-        );
+        return employeeDirectory.findById(userId);
     }
 
     public Employee createEmployee(Employee employee) {
@@ -134,6 +100,7 @@ public class EmployeeService {
                 user.singleAttribute("original_username", username);
                 user.singleAttribute("original_password", firstName);
                 userResource.update(user);
+                employeeDirectory.put(user, employee.getRole());
 
                 return employee;
             } else if (response.getStatus() == 409) {
@@ -147,35 +114,7 @@ public class EmployeeService {
     }
 
     public EmployeeCredentials getEmployeeCredentials(String userId) {
-        try {
-            RealmResource realmResource = keycloak.realm(realm);
-            UserResource userResource = realmResource.users().get(userId);
-            UserRepresentation user = userResource.toRepresentation();
-
-            if (user == null) {
-                throw new EmployeeNotFoundException(userId);
-            }
-
-            String role = getUserRole(realmResource, userId);
-            String username = user.getAttributes() != null && user.getAttributes().containsKey("original_username")
-                    ? user.getAttributes().get("original_username").get(0)
-                    : user.getUsername();
-            String password = user.getAttributes() != null && user.getAttributes().containsKey("original_password")
-                    ? user.getAttributes().get("original_password").get(0)
-                    : "********";
-
-            return new EmployeeCredentials(
-                    user.getId(),
-                    user.getFirstName() + " " + user.getLastName(),
-                    user.getEmail(),
-                    role,
-                    user.isEnabled(),
-                    username,
-                    password
-            );
-        } catch (jakarta.ws.rs.NotFoundException e) {
-            throw new EmployeeNotFoundException(userId);
-        }
+        return employeeDirectory.findCredentials(userId);
     }
 
     public Employee updateEmployee(String userId, Employee employee) {
@@ -210,6 +149,7 @@ public class EmployeeService {
             if (!currentRole.equals(employee.getRole())) {
                 updateUserRole(realmResource, userId, currentRole, employee.getRole());
             }
+            employeeDirectory.put(user, employee.getRole());
 
             return employee;
         } catch (jakarta.ws.rs.NotFoundException e) {
@@ -223,6 +163,7 @@ public class EmployeeService {
         try {
             RealmResource realmResource = keycloak.realm(realm);
             realmResource.users().delete(userId);
+            employeeDirectory.remove(userId);
         } catch (jakarta.ws.rs.NotFoundException e) {
             throw new EmployeeNotFoundException(userId);
         }
@@ -256,6 +197,7 @@ public class EmployeeService {
 
             // Return credentials
             String role = getUserRole(realmResource, userId);
+            employeeDirectory.put(user, role);
             return new EmployeeCredentials(
                     user.getId(),
                     user.getFirstName() + " " + user.getLastName(),
@@ -312,13 +254,8 @@ public class EmployeeService {
     private String getUserRole(RealmResource realmResource, String userId) {
         UserResource userResource = realmResource.users().get(userId);
         List<RoleRepresentation> roles = userResource.roles().realmLevel().listEffective();
-
-        for (RoleRepresentation role : roles) {
-            if (VALID_ROLES.contains(role.getName())) {
-                return role.getName();
-            }
-        }
-        return "NONE";
+        // Cùng quy tắc với EmployeeDirectory để bản ghi trong danh bạ không phụ thuộc đường nạp
+        return EmployeeDirectory.resolveRole(roles.stream().map(RoleRepresentation::getName).collect(Collectors.toSet()));
     }
 
     // Hàm loại bỏ dấu tiếng Việt
@@ -0,0 +1,166 @@
+package com.supermarket.employee_market_service.service;
+
+import com.supermarket.employee_market_service.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.*;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The bulk refresh and the per-user read-through must agree on every employee's role. The realm below grants roles
+ * the ways listEffective() sees them: directly, through a parent group, and through realm and client composite roles.
+ */
+class EmployeeDirectoryTests {
+    private static final String REALM = "test";
+
+    private final Keycloak keycloak = mock(Keycloak.class);
+    private final RealmResource realm = mock(RealmResource.class);
+    private final RolesResource realmRoles = mock(RolesResource.class);
+    private final ClientsResource clients = mock(ClientsResource.class);
+    private final GroupsResource groups = mock(GroupsResource.class);
+    private final UsersResource users = mock(UsersResource.class);
+    private final List<RoleRepresentation> allRealmRoles = new ArrayList<>();
+    private final List<UserRepresentation> allUsers = new ArrayList<>();
+
+    @BeforeEach
+    void realm() {
+        when(keycloak.realm(REALM)).thenReturn(realm);
+        when(realm.roles()).thenReturn(realmRoles);
+        when(realm.clients()).thenReturn(clients);
+        when(realm.groups()).thenReturn(groups);
+        when(realm.users()).thenReturn(users);
+        when(realmRoles.list()).thenReturn(allRealmRoles);
+        when(users.list(anyInt(), anyInt())).thenReturn(allUsers);
+
+        RoleResource cashier = realmRole("CASHIER", false);
+        RoleResource warehouse = realmRole("WAREHOUSE", false);
+        realmRole("MARKETING", false);
+        realmRole("ADMIN", false);
+        RoleResource storeManager = realmRole("STORE_MANAGER", true);
+        when(storeManager.getRoleComposites()).thenReturn(Set.of(representation("MARKETING", false)));
+
+        // Client role "pos/supervisor" is a composite that grants the realm role ADMIN
+        ClientRepresentation pos = new ClientRepresentation();
+        pos.setId("pos-id");
+        when(clients.findAll()).thenReturn(List.of(pos));
+        ClientResource posResource = mock(ClientResource.class);
+        RolesResource posRoles = mock(RolesResource.class);
+        RoleResource supervisor = mock(RoleResource.class);
+        when(clients.get("pos-id")).thenReturn(posResource);
+        when(posResource.roles()).thenReturn(posRoles);
+        when(posRoles.list()).thenReturn(List.of(representation("supervisor", true)));
+        when(posRoles.get("supervisor")).thenReturn(supervisor);
+        when(supervisor.getRoleComposites()).thenReturn(Set.of(representation("ADMIN", false)));
+
+        // Group "store" holds WAREHOUSE; its members and the members of its subgroup "night-shift" inherit it
+        GroupResource store = group("store");
+        GroupResource nightShift = group("night-shift");
+        when(store.getSubGroups(anyInt(), anyInt(), any())).thenReturn(List.of(groupRepresentation("night-shift")));
+        when(warehouse.getRoleGroupMembers(anyInt(), anyInt())).thenReturn(Set.of(groupRepresentation("store")));
+
+        UserRepresentation direct = user("direct", "CASHIER");
+        UserRepresentation inGroup = user("in-group", "WAREHOUSE");
+        UserRepresentation inSubgroup = user("in-subgroup", "WAREHOUSE");
+        UserRepresentation viaComposite = user("via-composite", "STORE_MANAGER", "MARKETING");
+        UserRepresentation viaClientComposite = user("via-client-composite", "ADMIN");
+        user("no-role");
+
+        when(cashier.getUserMembers(anyInt(), anyInt())).thenReturn(List.of(direct));
+        when(store.members(anyInt(), anyInt())).thenReturn(List.of(inGroup));
+        when(nightShift.members(anyInt(), anyInt())).thenReturn(List.of(inSubgroup));
+        when(storeManager.getUserMembers(anyInt(), anyInt())).thenReturn(List.of(viaComposite));
+        when(supervisor.getUserMembers(anyInt(), anyInt())).thenReturn(List.of(viaClientComposite));
+    }
+
+    @Test
+    void refreshResolvesTheSameRolesAsTheReadThrough() {
+        EmployeeDirectory refreshed = new EmployeeDirectory(keycloak, REALM, 100);
+        refreshed.refresh();
+
+        for (UserRepresentation user : allUsers) {
+            // A directory that never refreshed reads each user through listEffective()
+            EmployeeDirectory readThrough = new EmployeeDirectory(keycloak, REALM, 100);
+            assertEquals(readThrough.findById(user.getId()).getRole(), refreshed.findById(user.getId()).getRole(), user.getId());
+        }
+        assertEquals("CASHIER", refreshed.findById("direct").getRole());
+        assertEquals("WAREHOUSE", refreshed.findById("in-subgroup").getRole());
+        assertEquals("MARKETING", refreshed.findById("via-composite").getRole());
+        assertEquals("ADMIN", refreshed.findById("via-client-composite").getRole());
+        assertEquals("NONE", refreshed.findById("no-role").getRole());
+    }
+
+    @Test
+    void findAllLeavesOutAdminsGrantedThroughComposites() {
+        EmployeeDirectory directory = new EmployeeDirectory(keycloak, REALM, 100);
+        directory.refresh();
+
+        Set<String> ids = directory.findAll().stream().map(Employee::getId).collect(Collectors.toSet());
+        assertEquals(Set.of("direct", "in-group", "in-subgroup", "via-composite", "no-role"), ids);
+    }
+
+    private RoleResource realmRole(String name, boolean composite) {
+        RoleRepresentation role = representation(name, composite);
+        allRealmRoles.add(role);
+        RoleResource resource = mock(RoleResource.class);
+        when(realmRoles.get(name)).thenReturn(resource);
+        when(resource.toRepresentation()).thenReturn(role);
+        return resource;
+    }
+
+    private GroupResource group(String id) {
+        GroupResource resource = mock(GroupResource.class);
+        when(groups.group(id)).thenReturn(resource);
+        return resource;
+    }
+
+    // Registers the user with the realm roles listEffective() would return for it
+    private UserRepresentation user(String id, String... effectiveRoles) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(id);
+        user.setUsername(id);
+        user.setFirstName(id);
+        user.setLastName("");
+        user.setEnabled(true);
+        allUsers.add(user);
+
+        UserResource resource = mock(UserResource.class);
+        RoleMappingResource mappings = mock(RoleMappingResource.class);
+        RoleScopeResource realmLevel = mock(RoleScopeResource.class);
+        when(users.get(id)).thenReturn(resource);
+        when(resource.toRepresentation()).thenReturn(user);
+        when(resource.roles()).thenReturn(mappings);
+        when(mappings.realmLevel()).thenReturn(realmLevel);
+        when(realmLevel.listEffective()).thenReturn(Arrays.stream(effectiveRoles)
+                .map(role -> representation(role, false))
+                .collect(Collectors.toList()));
+        return user;
+    }
+
+    private static RoleRepresentation representation(String name, boolean composite) {
+        RoleRepresentation role = new RoleRepresentation();
+        role.setId(name + "-id");
+        role.setName(name);
+        role.setComposite(composite);
+        return role;
+    }
+
+    private static GroupRepresentation groupRepresentation(String id) {
+        GroupRepresentation group = new GroupRepresentation();
+        group.setId(id);
+        group.setName(id);
+        return group;
+    }
+}
@@ -0,0 +1,66 @@
+package com.supermarket.interservice;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * HTTP client cho các lời gọi giữa service: gắn vào WebClient.Builder do Spring Boot tạo,
+ * nên mọi WebClient trong service dùng chung một connection pool (keep-alive) và cùng timeout.
+ * Metrics reactor.netty.* được gắn tag theo service đích (remote.address + tiền tố /api/xxx).
+ * Mỗi service chỉ khai báo inter-service.* (url service đích, timeout, kích thước pool) trong application.yml của nó.
+ */
+@AutoConfiguration
+public class InterServiceClientAutoConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider interServiceConnectionProvider(
+            @Value("${inter-service.max-connections:200}") int maxConnections,
+            @Value("${inter-service.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${inter-service.max-idle-time:30s}") Duration maxIdleTime) {
+        return ConnectionProvider.builder("inter-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClientCustomizer interServiceWebClientCustomizer(
+            ConnectionProvider interServiceConnectionProvider,
+            @Value("${inter-service.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${inter-service.response-timeout:5s}") Duration responseTimeout,
+            @Value("${inter-service.http2:false}") boolean http2) {
+        HttpClient httpClient = HttpClient.create(interServiceConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                // h2c (HTTP/2 không TLS) khi service đích hỗ trợ, ngược lại dùng HTTP/1.1
+                .protocol(http2
+                        ? new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11})
+                .metrics(true, InterServiceClientAutoConfiguration::destinationTag);
+
+        return builder -> builder.clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+
+    // "/api/products/getListProducts?x=1" -> "/api/products": tag theo service, không nổ cardinality theo id
+    static String destinationTag(String uri) {
+        String path = URI.create(uri).getRawPath();
+        if (path == null || path.isEmpty()) return "/";
+
+        String[] segments = path.split("/", 4);
+        return segments.length >= 3 ? "/" + segments[1] + "/" + segments[2] : path;
+    }
+}
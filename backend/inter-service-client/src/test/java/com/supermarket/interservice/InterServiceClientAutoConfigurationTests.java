@@ -0,0 +1,24 @@
+package com.supermarket.interservice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The metrics tag keeps the first two path segments only, so per-id URIs do not create one time series each.
+ */
+class InterServiceClientAutoConfigurationTests {
+
+    @Test
+    void destinationTagKeepsTheServicePrefix() {
+        assertEquals("/api/products", InterServiceClientAutoConfiguration.destinationTag("/api/products/getListProducts?x=1"));
+        assertEquals("/api/customers", InterServiceClientAutoConfiguration.destinationTag("http://localhost:8085/api/customers/42"));
+        assertEquals("/api/inventory", InterServiceClientAutoConfiguration.destinationTag("/api/inventory"));
+    }
+
+    @Test
+    void shortPathsAreKeptAsIs() {
+        assertEquals("/", InterServiceClientAutoConfiguration.destinationTag("http://localhost:8080"));
+        assertEquals("/health", InterServiceClientAutoConfiguration.destinationTag("/health"));
+    }
+}
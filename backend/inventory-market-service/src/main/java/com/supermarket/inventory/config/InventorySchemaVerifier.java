@@ -0,0 +1,32 @@
+package com.supermarket.inventory.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Upsert tồn kho (insertIfAbsent / batchInsertIfAbsent) chỉ đúng khi có unique key (source_type, product_id):
+ * thiếu khoá thì ON DUPLICATE KEY không bao giờ xảy ra và mỗi lần gọi lại thêm một dòng trùng.
+ * Khoá do migration V2 tạo; nếu vì lý do nào đó không có thì dừng khởi động thay vì làm hỏng dữ liệu.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventorySchemaVerifier {
+    private static final String UNIQUE_KEY = "uk_inventory_source_product";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void verifyUniqueKey() {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.table_constraints " +
+                "WHERE table_schema = DATABASE() AND table_name = 'inventory' " +
+                "AND constraint_name = ? AND constraint_type = 'UNIQUE'",
+                Integer.class, UNIQUE_KEY);
+        if (count == null || count == 0) {
+            throw new IllegalStateException("Missing unique key " + UNIQUE_KEY
+                    + " on inventory; run the Flyway migrations before starting the service");
+        }
+    }
+}
@@ -29,7 +29,8 @@ public class SecurityConfig {
         return http
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(PUBLIC_ENDPOINT).permitAll()
-                        .requestMatchers("api/inventory/reduceInventory/**").hasRole("CASHIER")
+                        .requestMatchers("/api/inventory/reduceInventory/**").hasRole("CASHIER")
+                        .requestMatchers("/api/inventory/releaseInventory/**").hasRole("SERVICE")
                         .requestMatchers("/api/inventory/**").hasRole("WAREHOUSE")
                         .anyRequest().authenticated()
                 )
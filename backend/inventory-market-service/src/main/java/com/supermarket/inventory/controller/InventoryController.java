@@ -1,10 +1,14 @@
 package com.supermarket.inventory.controller;
 
 import com.supermarket.inventory.dto.request.ConfirmRequest;
+import com.supermarket.inventory.dto.request.ReduceInventoryRequest;
+import com.supermarket.inventory.dto.response.InventoryPageResponse;
 import com.supermarket.inventory.dto.response.InventoryResponse;
+import com.supermarket.inventory.dto.response.ReduceInventoryResponse;
 import com.supermarket.inventory.model.SourceType;
 import com.supermarket.inventory.service.InventoryService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -25,6 +29,25 @@ public class InventoryController {
         return inventoryService.getInventory(sortBy, direction);
     }
 
+    // GET /api/inventory/getInventory/page?sortBy=name&direction=asc&page=0&size=50
+    @GetMapping("/getInventory/page")
+    public InventoryPageResponse getInventoryPage(
+            @RequestParam(defaultValue = "name") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return inventoryService.getInventoryPage(sortBy, direction, page, size);
+    }
+
+    // Không gửi body: đối chiếu toàn bộ. Product service gửi danh sách productId vừa sửa/xoá
+    @PostMapping("/productNames/refresh")
+    public ResponseEntity<Integer> refreshProductNames(@RequestBody(required = false) List<String> productIds) {
+        if (productIds == null) {
+            return ResponseEntity.ok(inventoryService.refreshProductNames());
+        }
+        return ResponseEntity.ok(inventoryService.refreshProductNames(productIds));
+    }
+
     @GetMapping("/getInventory/{sourceType}/{productId}")
     public Double getInventoryBySourceTypeAndProductId(
             @PathVariable String sourceType,
@@ -40,4 +63,19 @@ public class InventoryController {
         return ResponseEntity.ok().build();
     }
 
+    @PutMapping("/reduceInventory/batch")
+    public ResponseEntity<List<ReduceInventoryResponse>> reduceInventoryBatch(
+            @RequestBody List<ReduceInventoryRequest> requests,
+            @RequestParam(required = false) String reservationId) {
+        List<ReduceInventoryResponse> responses = inventoryService.reduceInventoryQuantities(requests, reservationId);
+        boolean allReduced = responses.stream().allMatch(ReduceInventoryResponse::isSuccess);
+        return ResponseEntity.status(allReduced ? HttpStatus.OK : HttpStatus.CONFLICT).body(responses);
+    }
+
+    // Chỉ service account (role SERVICE) gọi được; gọi lại nhiều lần không cộng thêm
+    @PostMapping("/releaseInventory/{reservationId}")
+    public ResponseEntity<Void> releaseInventory(@PathVariable String reservationId) {
+        inventoryService.releaseReservation(reservationId);
+        return ResponseEntity.ok().build();
+    }
 }
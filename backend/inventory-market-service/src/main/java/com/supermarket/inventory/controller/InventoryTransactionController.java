@@ -1,6 +1,7 @@
 package com.supermarket.inventory.controller;
 
 import com.supermarket.inventory.dto.request.InventoryTransactionRequest;
+import com.supermarket.inventory.dto.response.InventoryTransactionPageResponse;
 import com.supermarket.inventory.dto.response.InventoryTransactionResponse;
 import com.supermarket.inventory.model.InventoryTransaction;
 import com.supermarket.inventory.service.InventoryTransactionService;
@@ -54,4 +55,14 @@ public class InventoryTransactionController {
                 inventoryTransactionService.groupTransactionsByDate(startDate, endDate);
         return ResponseEntity.ok(responses);
     }
+
+    // Lich su giao dich cua mot ngay, phan trang
+    // GET /api/inventory/transactions/getByDate?date=2024-11-01&page=0&size=50
+    @GetMapping("/getByDate")
+    public ResponseEntity<InventoryTransactionPageResponse> getTransactionsOfDate(
+            @RequestParam LocalDate date,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(inventoryTransactionService.getTransactionsOfDate(date, page, size));
+    }
 }
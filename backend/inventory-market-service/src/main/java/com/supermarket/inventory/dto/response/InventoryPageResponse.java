@@ -0,0 +1,19 @@
+package com.supermarket.inventory.dto.response;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InventoryPageResponse {
+    List<InventoryResponse> items;
+    int page;
+    int size;
+    long totalElements;
+    int totalPages;
+}
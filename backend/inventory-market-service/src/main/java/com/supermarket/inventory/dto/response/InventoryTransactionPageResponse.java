@@ -0,0 +1,20 @@
+package com.supermarket.inventory.dto.response;
+
+import com.supermarket.inventory.model.InventoryTransaction;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class InventoryTransactionPageResponse {
+    List<InventoryTransaction> items;
+    int page;
+    int size;
+    long totalElements;
+    int totalPages;
+}
@@ -0,0 +1,17 @@
+package com.supermarket.inventory.dto.response;
+
+import com.supermarket.inventory.enums.ReduceStatus;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReduceInventoryResponse {
+    String productId;
+    Integer quantity;
+    boolean success; // true chỉ khi dòng này thực sự đã được trừ (status = OK)
+    ReduceStatus status;
+}
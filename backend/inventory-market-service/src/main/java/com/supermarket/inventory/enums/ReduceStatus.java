@@ -0,0 +1,7 @@
+package com.supermarket.inventory.enums;
+
+public enum ReduceStatus {
+    OK,          // đã trừ kho
+    SHORTAGE,    // không đủ hàng trên kệ
+    ROLLED_BACK  // đủ hàng nhưng không trừ vì dòng khác trong giỏ thiếu hàng (cả giỏ rollback)
+}
@@ -0,0 +1,6 @@
+package com.supermarket.inventory.enums;
+
+public enum ReservationStatus {
+    RESERVED, // đã trừ kho, có thể release
+    RELEASED  // đã cộng trả (hoặc bị huỷ trước khi kịp trừ)
+}
@@ -9,7 +9,7 @@ import org.mapstruct.Mapping;
 public interface InventoryMapper {
     @Mapping(target = "productId", source = "inventory.productId")
     @Mapping(target = "quantity", source = "inventory.quantity")
-    @Mapping(target = "productName", ignore = true)
+    @Mapping(target = "productName", source = "inventory.productName")
     @Mapping(target = "price", ignore = true)
     InventoryResponse toInventoryResponse(Inventory inventory);
 }
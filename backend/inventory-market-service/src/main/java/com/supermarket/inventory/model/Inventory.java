@@ -5,6 +5,12 @@ import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 @Entity
+// ddl-auto: none, khoá và index thật nằm trong db/migration; khai báo ở đây chỉ để mô tả
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_inventory_source_product", columnNames = {"sourceType", "productId"}),
+        indexes = {
+        @Index(name = "idx_inventory_source_name", columnList = "sourceType, productName"),
+        @Index(name = "idx_inventory_source_quantity", columnList = "sourceType, quantity")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,6 +26,10 @@ public class Inventory {
     SourceType sourceType;
     String productId;
 
+    // Tên sản phẩm lưu kèm (denormalized) để sort/phân trang theo tên ngay trong DB,
+    // được ghi lại qua POST /productNames/refresh (sau khi đổi tên sản phẩm)
+    String productName;
+
     @Column(nullable = false)
     Double quantity;
 }
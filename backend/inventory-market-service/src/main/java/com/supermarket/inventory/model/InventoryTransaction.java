@@ -11,6 +11,8 @@ import lombok.experimental.FieldDefaults;
 import java.time.LocalDateTime;
 
 @Entity
+// ddl-auto: none, index thật nằm trong db/migration
+@Table(indexes = @Index(name = "idx_inventory_transaction_created_at", columnList = "createdAt, id"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -2,18 +2,68 @@ package com.supermarket.inventory.repository;
 
 import com.supermarket.inventory.model.Inventory;
 import com.supermarket.inventory.model.SourceType;
+import com.supermarket.inventory.repository.projection.InventoryQuantityProjection;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, String> {
+public interface InventoryRepository extends JpaRepository<Inventory, String>, InventoryRepositoryCustom {
     List<Inventory> findBySourceType(SourceType sourceType);
+    Page<Inventory> findBySourceType(SourceType sourceType, Pageable pageable);
     Optional<Inventory> findBySourceTypeAndProductId(SourceType sourceType, String productId);
+
+    // Tạo dòng tồn kho với số lượng 0 nếu chưa có (dựa trên unique key source_type + product_id do migration V2 tạo,
+    // InventorySchemaVerifier kiểm tra khoá lúc khởi động).
+    // Nếu dòng đã tồn tại thì chỉ điền product_name khi còn trống, vẫn giữ khoá ghi trên dòng đó tới hết transaction
+    @Modifying
+    @Query(value = "INSERT INTO inventory (id, source_type, product_id, product_name, quantity) " +
+            "VALUES (:id, :sourceType, :productId, :productName, 0) " +
+            "ON DUPLICATE KEY UPDATE product_name = COALESCE(product_name, VALUES(product_name))", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("sourceType") String sourceType,
+                       @Param("productId") String productId,
+                       @Param("productName") String productName);
+
+    // Các productId (trong danh sách) đã có tên sản phẩm; dòng WAREHOUSE đại diện vì mọi source type cùng tên
+    @Query("SELECT i.productId FROM Inventory i WHERE i.sourceType = com.supermarket.inventory.model.SourceType.WAREHOUSE " +
+            "AND i.productId IN :productIds AND i.productName IS NOT NULL")
+    List<String> findNamedProductIds(@Param("productIds") Collection<String> productIds);
+
+    // Một trang productId còn thiếu tên (keyset theo productId), dùng để điền tên lúc khởi động
+    @Query(value = "SELECT DISTINCT product_id FROM inventory WHERE product_name IS NULL AND product_id > :afterProductId " +
+            "ORDER BY product_id LIMIT :limit", nativeQuery = true)
+    List<String> findUnnamedProductIds(@Param("afterProductId") String afterProductId, @Param("limit") int limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.sourceType = :sourceType AND i.productId = :productId")
+    Optional<Inventory> findForUpdate(@Param("sourceType") SourceType sourceType,
+                                      @Param("productId") String productId);
+
+    // Khoá (SELECT ... FOR UPDATE) mọi dòng tồn kho của một lô sản phẩm trong một câu truy vấn, theo thứ tự cố định.
+    // Trả về projection thay vì entity: số lượng mới được ghi bằng JDBC batch, entity managed sẽ bị flush thêm một lần nữa
+    @Query(value = "SELECT id, source_type AS sourceType, product_id AS productId, quantity FROM inventory " +
+            "WHERE source_type IN (:sourceTypes) AND product_id IN (:productIds) " +
+            "ORDER BY product_id, source_type FOR UPDATE", nativeQuery = true)
+    List<InventoryQuantityProjection> lockQuantities(@Param("sourceTypes") Collection<String> sourceTypes,
+                                                     @Param("productIds") Collection<String> productIds);
+
+    // Trừ tồn kho nguyên tử: trả về 0 nếu không có dòng hoặc không đủ hàng
+    @Modifying
+    @Query("UPDATE Inventory i SET i.quantity = i.quantity - :quantity " +
+            "WHERE i.sourceType = :sourceType AND i.productId = :productId AND i.quantity >= :quantity")
+    int reduceQuantity(@Param("sourceType") SourceType sourceType,
+                       @Param("productId") String productId,
+                       @Param("quantity") double quantity);
 }
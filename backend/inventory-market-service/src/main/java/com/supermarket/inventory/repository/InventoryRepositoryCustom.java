@@ -0,0 +1,39 @@
+package com.supermarket.inventory.repository;
+
+import com.supermarket.inventory.dto.request.ReduceInventoryRequest;
+import com.supermarket.inventory.model.Inventory;
+import com.supermarket.inventory.model.SourceType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface InventoryRepositoryCustom {
+    /**
+     * Trừ tồn kho cho nhiều sản phẩm bằng một JDBC batch các câu UPDATE có điều kiện.
+     * Phần tử thứ i của kết quả là số dòng được cập nhật cho request thứ i (0 = không đủ hàng).
+     */
+    int[] batchReduceQuantities(SourceType sourceType, List<ReduceInventoryRequest> requests);
+
+    /**
+     * Cộng trả lại số lượng đã trừ bởi batchReduceQuantities (release một reservation, xem InventoryService.releaseReservation).
+     */
+    void batchReleaseQuantities(SourceType sourceType, List<ReduceInventoryRequest> requests);
+
+    /**
+     * Ghi lại tên sản phẩm denormalized (mọi source type của cùng productId) bằng một JDBC batch.
+     */
+    void batchUpdateProductNames(Map<String, String> productNames);
+
+    /**
+     * Tạo (số lượng 0) các dòng tồn kho còn thiếu cho mọi cặp sourceType x productId (key của productNames, theo thứ tự
+     * duyệt của Map) bằng một JDBC batch upsert, kèm tên sản phẩm (có thể null nếu chưa biết).
+     * Dòng đã tồn tại chỉ được điền product_name khi còn trống, và bị khoá ghi tới hết transaction.
+     */
+    void batchInsertIfAbsent(Collection<SourceType> sourceTypes, Map<String, String> productNames);
+
+    /**
+     * Ghi số lượng mới của các dòng tồn kho theo id bằng một JDBC batch.
+     */
+    void batchUpdateQuantities(List<Inventory> inventories);
+}
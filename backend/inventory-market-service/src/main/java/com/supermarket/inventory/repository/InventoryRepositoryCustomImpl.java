@@ -0,0 +1,129 @@
+package com.supermarket.inventory.repository;
+
+import com.supermarket.inventory.dto.request.ReduceInventoryRequest;
+import com.supermarket.inventory.model.Inventory;
+import com.supermarket.inventory.model.SourceType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+@RequiredArgsConstructor
+public class InventoryRepositoryCustomImpl implements InventoryRepositoryCustom {
+    private static final String REDUCE_QUANTITY_SQL =
+            "UPDATE inventory SET quantity = quantity - ? " +
+            "WHERE source_type = ? AND product_id = ? AND quantity >= ?";
+
+    private static final String RELEASE_QUANTITY_SQL =
+            "UPDATE inventory SET quantity = quantity + ? WHERE source_type = ? AND product_id = ?";
+
+    private static final String UPDATE_PRODUCT_NAME_SQL =
+            "UPDATE inventory SET product_name = ? WHERE product_id = ?";
+
+    private static final String INSERT_IF_ABSENT_SQL =
+            "INSERT INTO inventory (id, source_type, product_id, product_name, quantity) VALUES (?, ?, ?, ?, 0) " +
+            "ON DUPLICATE KEY UPDATE product_name = COALESCE(product_name, VALUES(product_name))";
+
+    private static final String UPDATE_QUANTITY_SQL =
+            "UPDATE inventory SET quantity = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] batchReduceQuantities(SourceType sourceType, List<ReduceInventoryRequest> requests) {
+        if (requests.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(REDUCE_QUANTITY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ReduceInventoryRequest request = requests.get(i);
+                ps.setDouble(1, request.getQuantity());
+                ps.setString(2, sourceType.name());
+                ps.setString(3, request.getProductId());
+                ps.setDouble(4, request.getQuantity());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return requests.size();
+            }
+        });
+    }
+
+    @Override
+    public void batchReleaseQuantities(SourceType sourceType, List<ReduceInventoryRequest> requests) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RELEASE_QUANTITY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ReduceInventoryRequest request = requests.get(i);
+                ps.setDouble(1, request.getQuantity());
+                ps.setString(2, sourceType.name());
+                ps.setString(3, request.getProductId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return requests.size();
+            }
+        });
+    }
+
+    @Override
+    public void batchUpdateProductNames(Map<String, String> productNames) {
+        if (productNames.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, String>> entries = new ArrayList<>(productNames.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_PRODUCT_NAME_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, entries.get(i).getValue());
+                ps.setString(2, entries.get(i).getKey());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    @Override
+    public void batchInsertIfAbsent(Collection<SourceType> sourceTypes, Map<String, String> productNames) {
+        List<Object[]> rows = new ArrayList<>(sourceTypes.size() * productNames.size());
+        for (SourceType sourceType : sourceTypes) {
+            productNames.forEach((productId, productName) ->
+                    rows.add(new Object[]{UUID.randomUUID().toString(), sourceType.name(), productId, productName}));
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, rows);
+    }
+
+    @Override
+    public void batchUpdateQuantities(List<Inventory> inventories) {
+        if (inventories.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_QUANTITY_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setDouble(1, inventories.get(i).getQuantity());
+                ps.setString(2, inventories.get(i).getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return inventories.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package com.supermarket.inventory.repository;
+
+import com.supermarket.inventory.dto.request.ReduceInventoryRequest;
+import com.supermarket.inventory.enums.ReservationStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Sổ reservation trừ kho của checkout (inventory_reservation + inventory_reservation_item), dùng JdbcTemplate
+ * như các batch fragment khác vì không cần entity được quản lý.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryReservationRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    // true nếu tạo mới; INSERT IGNORE chờ transaction khác đang giữ cùng khoá rồi mới trả kết quả
+    public boolean insertIfAbsent(String reservationId, ReservationStatus status) {
+        return jdbcTemplate.update(
+                "INSERT IGNORE INTO inventory_reservation (reservation_id, status, created_at) VALUES (?, ?, ?)",
+                reservationId, status.name(), Timestamp.valueOf(LocalDateTime.now())) == 1;
+    }
+
+    public Optional<ReservationStatus> findStatus(String reservationId) {
+        return jdbcTemplate.queryForList(
+                        "SELECT status FROM inventory_reservation WHERE reservation_id = ?", String.class, reservationId)
+                .stream()
+                .findFirst()
+                .map(ReservationStatus::valueOf);
+    }
+
+    // Chỉ một lần gọi đổi được RESERVED -> RELEASED, các lần sau trả về false
+    public boolean markReleased(String reservationId) {
+        return jdbcTemplate.update(
+                "UPDATE inventory_reservation SET status = 'RELEASED' WHERE reservation_id = ? AND status = 'RESERVED'",
+                reservationId) == 1;
+    }
+
+    public void batchInsertItems(String reservationId, List<ReduceInventoryRequest> items) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO inventory_reservation_item (reservation_id, product_id, quantity) VALUES (?, ?, ?)",
+                items.stream()
+                        .map(item -> new Object[]{reservationId, item.getProductId(), item.getQuantity().doubleValue()})
+                        .toList());
+    }
+
+    // Theo productId để cộng trả cùng thứ tự khoá dòng với lúc trừ
+    public List<ReduceInventoryRequest> findItems(String reservationId) {
+        return jdbcTemplate.query(
+                "SELECT product_id, quantity FROM inventory_reservation_item WHERE reservation_id = ? ORDER BY product_id",
+                (rs, rowNum) -> new ReduceInventoryRequest(rs.getString("product_id"), (int) rs.getDouble("quantity")),
+                reservationId);
+    }
+
+    // Xoá theo lô các reservation cũ (cả item) để hai bảng không phình mãi
+    public int deleteBefore(LocalDateTime cutoff, int limit) {
+        List<String> ids = jdbcTemplate.queryForList(
+                "SELECT reservation_id FROM inventory_reservation WHERE created_at < ? ORDER BY created_at LIMIT ?",
+                String.class, Timestamp.valueOf(cutoff), limit);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", ids.stream().map(id -> "?").toList());
+        jdbcTemplate.update("DELETE FROM inventory_reservation_item WHERE reservation_id IN (" + placeholders + ")",
+                ids.toArray());
+        return jdbcTemplate.update("DELETE FROM inventory_reservation WHERE reservation_id IN (" + placeholders + ")",
+                ids.toArray());
+    }
+}
@@ -1,11 +1,34 @@
 package com.supermarket.inventory.repository;
 
 import com.supermarket.inventory.model.InventoryTransaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface InventoryTransactionRepository extends JpaRepository<InventoryTransaction, Long> {
+public interface InventoryTransactionRepository extends JpaRepository<InventoryTransaction, Long>, InventoryTransactionRepositoryCustom {
+
+    // Khoảng nửa mở [start, end) trên created_at, đi theo index idx_inventory_transaction_created_at
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT t FROM InventoryTransaction t " +
+            "WHERE t.createdAt >= :start AND t.createdAt < :end " +
+            "ORDER BY t.createdAt, t.id")
+    Stream<InventoryTransaction> streamByCreatedAtRange(@Param("start") LocalDateTime start,
+                                                        @Param("end") LocalDateTime end);
+
+    @Query("SELECT t FROM InventoryTransaction t " +
+            "WHERE t.createdAt >= :start AND t.createdAt < :end")
+    Page<InventoryTransaction> findByCreatedAtRange(@Param("start") LocalDateTime start,
+                                                    @Param("end") LocalDateTime end,
+                                                    Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package com.supermarket.inventory.repository;
+
+import com.supermarket.inventory.model.InventoryTransaction;
+
+import java.util.List;
+
+public interface InventoryTransactionRepositoryCustom {
+    /**
+     * Ghi lịch sử nhập/xuất kho cho cả lô bằng một JDBC batch INSERT.
+     */
+    void batchInsert(List<InventoryTransaction> transactions);
+}
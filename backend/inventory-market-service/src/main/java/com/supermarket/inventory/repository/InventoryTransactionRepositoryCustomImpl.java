@@ -0,0 +1,43 @@
+package com.supermarket.inventory.repository;
+
+import com.supermarket.inventory.model.InventoryTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class InventoryTransactionRepositoryCustomImpl implements InventoryTransactionRepositoryCustom {
+    private static final String INSERT_SQL =
+            "INSERT INTO inventory_transaction (order_id, product_id, type, quantity, created_at) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<InventoryTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                InventoryTransaction transaction = transactions.get(i);
+                ps.setString(1, transaction.getOrderId());
+                ps.setString(2, transaction.getProductId());
+                ps.setString(3, transaction.getType().name());
+                ps.setDouble(4, transaction.getQuantity());
+                ps.setTimestamp(5, Timestamp.valueOf(transaction.getCreatedAt()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return transactions.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+package com.supermarket.inventory.repository.projection;
+
+// Một dòng tồn kho đọc bằng native query: không phải entity được quản lý nên Hibernate không dirty-check và flush lại
+public interface InventoryQuantityProjection {
+    String getId();
+    String getSourceType();
+    String getProductId();
+    Double getQuantity();
+}
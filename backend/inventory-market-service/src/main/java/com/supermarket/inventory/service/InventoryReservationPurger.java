@@ -0,0 +1,45 @@
+package com.supermarket.inventory.service;
+
+import com.supermarket.inventory.repository.InventoryReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Xoá định kỳ các reservation trừ kho đã cũ. Sau retention, transaction service không còn gửi lại
+ * lần trừ kho hay lần release nào cho reservation đó nữa.
+ */
+@Slf4j
+@Component
+public class InventoryReservationPurger {
+    private static final int BATCH_SIZE = 1000;
+
+    private final InventoryReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+
+    public InventoryReservationPurger(InventoryReservationRepository reservationRepository,
+                                      TransactionTemplate transactionTemplate,
+                                      @Value("${inventory.reservation.retention:7d}") Duration retention) {
+        this.reservationRepository = reservationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+    }
+
+    @Scheduled(cron = "${inventory.reservation.purge-cron:0 15 4 * * *}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = transactionTemplate.execute(status -> reservationRepository.deleteBefore(cutoff, BATCH_SIZE));
+            total += deleted;
+        } while (deleted == BATCH_SIZE);
+        log.info("Purged {} inventory reservations older than {}", total, cutoff);
+    }
+}
@@ -1,16 +1,24 @@
 package com.supermarket.inventory.service;
 
+import com.supermarket.inventory.dto.request.ReduceInventoryRequest;
 import com.supermarket.inventory.dto.response.*;
+import com.supermarket.inventory.enums.ReduceStatus;
+import com.supermarket.inventory.enums.ReservationStatus;
 import com.supermarket.inventory.mapper.InventoryMapper;
 import com.supermarket.inventory.model.Inventory;
 import com.supermarket.inventory.model.SourceType;
 import com.supermarket.inventory.repository.InventoryRepository;
+import com.supermarket.inventory.repository.InventoryReservationRepository;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.util.*;
 
@@ -19,12 +27,19 @@ import java.util.*;
 public class InventoryService {
     private final InventoryRepository inventoryRepository;
     private final InventoryMapper mapper;
-    private final WebClient webClient;
+    private final ProductLookup productLookup;
+    private final InventoryReservationRepository reservationRepository;
 
-    public InventoryService(InventoryRepository inventoryRepository, InventoryMapper mapper, WebClient.Builder webClientBuilder) {
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int REFRESH_PAGE_SIZE = 500;
+    private static final int FILL_PAGE_SIZE = 500;
+
+    public InventoryService(InventoryRepository inventoryRepository, InventoryMapper mapper, ProductLookup productLookup,
+                            InventoryReservationRepository reservationRepository) {
         this.inventoryRepository = inventoryRepository;
         this.mapper = mapper;
-        this.webClient = webClientBuilder.baseUrl("http://localhost:9000/api").build();
+        this.productLookup = productLookup;
+        this.reservationRepository = reservationRepository;
     }
 
     // GET INVENTORY BY SOURCE ID
@@ -37,29 +52,7 @@ public class InventoryService {
 
         inventories = inventoryRepository.findBySourceType(SourceType.WAREHOUSE);
 
-        List<InventoryResponse> responses = inventories.stream()
-                .map(inventory -> {
-                    InventoryResponse response = mapper.toInventoryResponse(inventory);
-
-                    // gọi API lấy product info
-                    ProductResponse product = webClient.get()
-                            .uri("/products/{id}", response.getProductId())
-                            .headers(headers -> {
-                                assert tokenValue != null;
-                                headers.setBearerAuth(tokenValue);
-                            })
-                            .retrieve()
-                            .bodyToMono(ProductResponse.class)
-                            .block(); // block vì đang dùng sync
-
-                    if (product != null) {
-                        response.setProductName(product.getName());
-                        response.setPrice(product.getPrice());
-                    }
-
-                    return response;
-                })
-                .toList();
+        List<InventoryResponse> responses = enrich(inventories, tokenValue);
         Comparator<InventoryResponse> comparator;
 
         switch (sortBy) {
@@ -76,6 +69,108 @@ public class InventoryService {
         return responses.stream().sorted(comparator).toList();
     }
 
+    // GET ONE PAGE OF WAREHOUSE INVENTORY
+    // Sort + limit/offset chạy trong DB (tên sản phẩm dùng cột denormalized), chỉ làm giàu các dòng của trang
+    public InventoryPageResponse getInventoryPage(String sortBy, String direction, int page, int size) {
+        Sort.Direction sortDirection =
+                "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        String property = switch (sortBy) {
+            case "name" -> "productName";
+            case "quantity" -> "quantity";
+            default -> "productId";
+        };
+        // productId làm khoá phụ để thứ tự giữa các trang ổn định
+        Sort sort = Sort.by(sortDirection, property).and(Sort.by(sortDirection, "productId"));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+
+        Page<Inventory> inventories = inventoryRepository.findBySourceType(SourceType.WAREHOUSE, pageable);
+
+        return InventoryPageResponse.builder()
+                .items(enrich(inventories.getContent(), getToken()))
+                .page(inventories.getNumber())
+                .size(inventories.getSize())
+                .totalElements(inventories.getTotalElements())
+                .totalPages(inventories.getTotalPages())
+                .build();
+    }
+
+    // Điền lại tên sản phẩm denormalized cho toàn bộ tồn kho (ProductNameRefresher chạy định kỳ, hoặc gọi tay sau khi
+    // đổi tên hàng loạt). product_name chỉ được ghi ở đây, lúc tạo dòng tồn kho mới và khi product service báo
+    // sản phẩm thay đổi; các GET chỉ đọc, không ghi DB
+    public int refreshProductNames() {
+        String tokenValue = getToken();
+        int refreshed = 0;
+        Page<Inventory> inventories;
+        int page = 0;
+        do {
+            inventories = inventoryRepository.findBySourceType(SourceType.WAREHOUSE,
+                    PageRequest.of(page++, REFRESH_PAGE_SIZE, Sort.by("productId")));
+            Map<String, ProductResponse> products = lookupProducts(inventories.getContent(), tokenValue);
+
+            Map<String, String> changedNames = new HashMap<>();
+            for (Inventory inventory : inventories.getContent()) {
+                ProductResponse product = products.get(inventory.getProductId());
+                if (product != null && product.getName() != null
+                        && !product.getName().equals(inventory.getProductName())) {
+                    changedNames.put(inventory.getProductId(), product.getName());
+                }
+            }
+            inventoryRepository.batchUpdateProductNames(changedNames);
+            refreshed += changedNames.size();
+        } while (inventories.hasNext());
+        return refreshed;
+    }
+
+    // Ghi lại tên của một số sản phẩm (product service gọi sau khi sản phẩm được sửa/xoá)
+    public int refreshProductNames(Collection<String> productIds) {
+        Map<String, String> names = productLookup.findNames(productIds, getToken());
+        inventoryRepository.batchUpdateProductNames(names);
+        return names.size();
+    }
+
+    // Điền tên cho các dòng còn thiếu (cột vừa thêm ở V3, hoặc product service lỗi lúc tạo dòng).
+    // Sản phẩm product service không trả về vẫn để trống và được bỏ qua, vòng lặp đi tiếp theo keyset
+    public int fillMissingProductNames() {
+        String tokenValue = getToken();
+        int filled = 0;
+        String afterProductId = "";
+        List<String> productIds;
+        do {
+            productIds = inventoryRepository.findUnnamedProductIds(afterProductId, FILL_PAGE_SIZE);
+            if (productIds.isEmpty()) {
+                break;
+            }
+            Map<String, String> names = productLookup.findNames(productIds, tokenValue);
+            inventoryRepository.batchUpdateProductNames(names);
+            filled += names.size();
+            afterProductId = productIds.get(productIds.size() - 1);
+        } while (productIds.size() == FILL_PAGE_SIZE);
+        return filled;
+    }
+
+    // Gọi API lấy product info theo lô và join trong bộ nhớ
+    private List<InventoryResponse> enrich(List<Inventory> inventories, String tokenValue) {
+        Map<String, ProductResponse> products = lookupProducts(inventories, tokenValue);
+
+        return inventories.stream()
+                .map(inventory -> {
+                    InventoryResponse response = mapper.toInventoryResponse(inventory);
+
+                    ProductResponse product = products.get(response.getProductId());
+                    if (product != null) {
+                        response.setProductName(product.getName());
+                        response.setPrice(product.getPrice());
+                    }
+
+                    return response;
+                })
+                .toList();
+    }
+
+    private Map<String, ProductResponse> lookupProducts(List<Inventory> inventories, String tokenValue) {
+        return productLookup.findByIds(inventories.stream().map(Inventory::getProductId).toList(), tokenValue);
+    }
+
     public String getToken(){
         // 🔸 Lấy token từ SecurityContext
         var authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -96,13 +191,106 @@ public class InventoryService {
     }
 
     // REDUCE INVENTORY QUANTITY BY PRODUCT ID WITH SOURCE TYPE = SHELF
+    // Một câu UPDATE có điều kiện, không đọc trước nên không mất cập nhật khi nhiều quầy bán cùng lúc
+    @Transactional
     public void reduceInventoryQuantity(String productId, Integer quantity) {
-        Inventory inventory = inventoryRepository.findBySourceTypeAndProductId(SourceType.SHELF, productId)
-                .orElseThrow(() -> new NoSuchElementException("Inventory not found for product ID: " + productId + " and source type: SHELF"));
-        if(inventory.getQuantity() < quantity) {
+        int updatedRows = inventoryRepository.reduceQuantity(SourceType.SHELF, productId, quantity);
+        if (updatedRows == 0) {
+            if (inventoryRepository.findBySourceTypeAndProductId(SourceType.SHELF, productId).isEmpty()) {
+                throw new NoSuchElementException("Inventory not found for product ID: " + productId + " and source type: SHELF");
+            }
             throw new IllegalArgumentException("Insufficient inventory for product ID: " + productId);
         }
-        inventory.setQuantity(inventory.getQuantity() - quantity);
-        inventoryRepository.save(inventory);
+    }
+
+    // REDUCE SHELF INVENTORY FOR A WHOLE BASKET IN ONE TRANSACTION
+    // Tất cả hoặc không: nếu một dòng thiếu hàng thì rollback toàn bộ và trả về kết quả từng dòng
+    // (SHORTAGE cho dòng thiếu, ROLLED_BACK cho dòng đủ hàng nhưng bị huỷ theo).
+    // reservationId (nếu có) ghi lại đúng số đã trừ để releaseReservation cộng trả; gửi lại cùng id không trừ hai lần
+    @Transactional
+    public List<ReduceInventoryResponse> reduceInventoryQuantities(List<ReduceInventoryRequest> requests, String reservationId) {
+        for (ReduceInventoryRequest request : requests) {
+            if (request.getProductId() == null || request.getProductId().isEmpty()) {
+                throw new IllegalArgumentException("Product ID is required");
+            }
+            if (request.getQuantity() == null || request.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than 0");
+            }
+        }
+
+        if (reservationId != null && !reservationRepository.insertIfAbsent(reservationId, ReservationStatus.RESERVED)) {
+            // Gửi lại (đã trừ: OK) hoặc release đã đến trước (huỷ: ROLLED_BACK); không trừ thêm lần nào
+            boolean reserved = reservationRepository.findStatus(reservationId)
+                    .filter(ReservationStatus.RESERVED::equals)
+                    .isPresent();
+            ReduceStatus status = reserved ? ReduceStatus.OK : ReduceStatus.ROLLED_BACK;
+            log.info("Reservation {} already {}, not reducing again", reservationId, reserved ? "applied" : "released");
+            return requests.stream()
+                    .map(request -> ReduceInventoryResponse.builder()
+                            .productId(request.getProductId())
+                            .quantity(request.getQuantity())
+                            .success(reserved)
+                            .status(status)
+                            .build())
+                    .toList();
+        }
+
+        // UPDATE theo thứ tự productId (như batchTransactionInventory) để hai giỏ [A,B] và [B,A] chạy song song
+        // khoá dòng cùng thứ tự, không deadlock
+        List<ReduceInventoryRequest> sorted = requests.stream()
+                .sorted(Comparator.comparing(ReduceInventoryRequest::getProductId))
+                .toList();
+        int[] updatedRows = inventoryRepository.batchReduceQuantities(SourceType.SHELF, sorted);
+
+        Map<String, Boolean> reducedByProduct = new HashMap<>();
+        boolean shortage = false;
+        for (int i = 0; i < sorted.size(); i++) {
+            boolean reduced = updatedRows[i] != 0;
+            reducedByProduct.merge(sorted.get(i).getProductId(), reduced, Boolean::logicalAnd);
+            shortage |= !reduced;
+        }
+
+        List<ReduceInventoryResponse> responses = new ArrayList<>(requests.size());
+        for (ReduceInventoryRequest request : requests) {
+            ReduceStatus status = !reducedByProduct.get(request.getProductId()) ? ReduceStatus.SHORTAGE
+                    : shortage ? ReduceStatus.ROLLED_BACK : ReduceStatus.OK;
+            responses.add(ReduceInventoryResponse.builder()
+                    .productId(request.getProductId())
+                    .quantity(request.getQuantity())
+                    .success(status == ReduceStatus.OK)
+                    .status(status)
+                    .build());
+        }
+
+        if (shortage) {
+            log.warn("Insufficient shelf inventory, rolling back basket reduction: {}", responses);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        } else if (reservationId != null) {
+            Map<String, Integer> reservedByProduct = new TreeMap<>();
+            sorted.forEach(request -> reservedByProduct.merge(request.getProductId(), request.getQuantity(), Integer::sum));
+            reservationRepository.batchInsertItems(reservationId, reservedByProduct.entrySet().stream()
+                    .map(entry -> new ReduceInventoryRequest(entry.getKey(), entry.getValue()))
+                    .toList());
+        }
+        return responses;
+    }
+
+    // RELEASE SHELF INVENTORY RESERVED BY reduceInventoryQuantities
+    // Transaction service gọi để bù trừ khi đã trừ kho nhưng không ghi được hoá đơn (hoặc lời gọi trừ kho bị timeout).
+    // Chỉ cộng trả đúng số reservation đã trừ và chỉ một lần; release đến trước lần trừ kho thì chặn luôn lần trừ đó
+    @Transactional
+    public void releaseReservation(String reservationId) {
+        if (reservationId == null || reservationId.isEmpty()) {
+            throw new IllegalArgumentException("Reservation ID is required");
+        }
+        if (reservationRepository.insertIfAbsent(reservationId, ReservationStatus.RELEASED)) {
+            log.info("Reservation {} released before any reduction, later reduction will be refused", reservationId);
+            return;
+        }
+        if (!reservationRepository.markReleased(reservationId)) {
+            log.info("Reservation {} already released", reservationId);
+            return;
+        }
+        inventoryRepository.batchReleaseQuantities(SourceType.SHELF, reservationRepository.findItems(reservationId));
     }
 }
@@ -1,6 +1,7 @@
 package com.supermarket.inventory.service;
 
 import com.supermarket.inventory.dto.request.InventoryTransactionRequest;
+import com.supermarket.inventory.dto.response.InventoryTransactionPageResponse;
 import com.supermarket.inventory.dto.response.InventoryTransactionResponse;
 import com.supermarket.inventory.mapper.InventoryTransactionMapper;
 import com.supermarket.inventory.model.Inventory;
@@ -8,15 +9,19 @@ import com.supermarket.inventory.model.InventoryTransaction;
 import com.supermarket.inventory.model.SourceType;
 import com.supermarket.inventory.repository.InventoryRepository;
 import com.supermarket.inventory.repository.InventoryTransactionRepository;
+import com.supermarket.inventory.repository.projection.InventoryQuantityProjection;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.time.LocalDateTime;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -27,6 +32,12 @@ public class InventoryTransactionService {
     private final InventoryRepository inventoryRepository;
     private final InventoryTransactionRepository inventoryTransactionRepository;
     private final InventoryTransactionMapper inventoryTransactionMapper;
+    private final ProductLookup productLookup;
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1000, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final List<SourceType> BATCH_SOURCE_TYPES = List.of(SourceType.WAREHOUSE, SourceType.SHELF);
 
     /**
      * Thực hiện giao dịch nhập/xuất kho
@@ -40,8 +51,9 @@ public class InventoryTransactionService {
         validateRequest(request);
 
         // 2. Lấy inventory từ warehouse
-        Inventory inventoryWarehouse = getOrCreateInventory(SourceType.WAREHOUSE, request.getProductId());
-        Inventory inventoryShelf = getOrCreateInventory(SourceType.SHELF, request.getProductId());
+        String productName = missingProductNames(List.of(request.getProductId())).get(request.getProductId());
+        Inventory inventoryWarehouse = getOrCreateInventory(SourceType.WAREHOUSE, request.getProductId(), productName);
+        Inventory inventoryShelf = getOrCreateInventory(SourceType.SHELF, request.getProductId(), productName);
 
         // 3. Tính toán số lượng mới
         double oldQuantityWarehouse = inventoryWarehouse.getQuantity();
@@ -52,7 +64,7 @@ public class InventoryTransactionService {
         // 4. Validate số lượng
         if (newQuantityWarehouse < 0) {
             throw new RuntimeException(String.format(
-                    "Not enough inventory for product %s. Available: %d, Required: %d",
+                    "Not enough inventory for product %s. Available: %s, Required: %s",
                     request.getProductId(), oldQuantityWarehouse, request.getQuantity()));
         }
 
@@ -76,6 +88,8 @@ public class InventoryTransactionService {
 
     /**
      * Thực hiện batch transaction (nhiều sản phẩm cùng lúc)
+     * Xử lý theo tập: một batch upsert tạo dòng còn thiếu, một câu truy vấn khoá mọi dòng WAREHOUSE/SHELF, tính toán và kiểm tra
+     * toàn bộ lô trong bộ nhớ, sau đó ghi tồn kho và lịch sử bằng JDBC batch. Lỗi ở bất kỳ dòng nào rollback cả lô.
      */
     @Transactional
     public List<InventoryTransactionResponse> batchTransactionInventory(
@@ -84,45 +98,127 @@ public class InventoryTransactionService {
         log.info("Processing batch inventory transaction: {} items",
                 batchRequest.size());
 
-        List<InventoryTransactionResponse> responses = new ArrayList<>();
+        if (batchRequest.isEmpty()) {
+            return new ArrayList<>();
+        }
 
+        // 1. Validate toàn bộ lô trước khi chạm vào DB
         for (InventoryTransactionRequest request : batchRequest) {
             try {
-                InventoryTransactionResponse response = transactionInventory(request);
-                responses.add(response);
-            } catch (Exception e) {
-                log.error("Failed to process transaction for product {}: {}",
-                        request.getProductId(), e.getMessage());
-
-                // Nếu có lỗi, rollback toàn bộ transaction
-                throw new RuntimeException(
-                        "Batch transaction failed at product " + request.getProductId(), e);
+                validateRequest(request);
+            } catch (IllegalArgumentException e) {
+                throw batchFailure(request, e);
+            }
+        }
+
+        // 2. Tạo các dòng còn thiếu bằng một batch upsert, rồi lấy (và khoá) mọi dòng liên quan trong một câu truy vấn.
+        // productId được sắp xếp để các lô chạy song song luôn khoá dòng theo cùng một thứ tự
+        Set<String> productIds = batchRequest.stream()
+                .map(InventoryTransactionRequest::getProductId)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Map<String, String> missingNames = missingProductNames(productIds);
+        Map<String, String> productNames = new TreeMap<>();
+        productIds.forEach(productId -> productNames.put(productId, missingNames.get(productId)));
+        inventoryRepository.batchInsertIfAbsent(BATCH_SOURCE_TYPES, productNames);
+
+        // Các Inventory dựng từ projection là object thường (không managed), chỉ dùng để tính toán trong bộ nhớ
+        Map<SourceType, Map<String, Inventory>> inventories = new EnumMap<>(SourceType.class);
+        List<String> sourceTypes = BATCH_SOURCE_TYPES.stream().map(SourceType::name).toList();
+        for (InventoryQuantityProjection row : inventoryRepository.lockQuantities(sourceTypes, productIds)) {
+            Inventory inventory = Inventory.builder()
+                    .id(row.getId())
+                    .sourceType(SourceType.valueOf(row.getSourceType()))
+                    .productId(row.getProductId())
+                    .quantity(row.getQuantity())
+                    .build();
+            inventories.computeIfAbsent(inventory.getSourceType(), type -> new HashMap<>())
+                    .put(inventory.getProductId(), inventory);
+        }
+
+        // 3. Tính số lượng mới theo đúng thứ tự các dòng (nhiều dòng cùng sản phẩm được cộng dồn)
+        Map<String, Inventory> updatedById = new LinkedHashMap<>();
+        List<InventoryTransaction> transactions = new ArrayList<>(batchRequest.size());
+        for (InventoryTransactionRequest request : batchRequest) {
+            Inventory inventoryWarehouse = inventories.get(SourceType.WAREHOUSE).get(request.getProductId());
+            Inventory inventoryShelf = inventories.get(SourceType.SHELF).get(request.getProductId());
+
+            double oldQuantityWarehouse = inventoryWarehouse.getQuantity();
+            double newQuantityWarehouse = calculateNewQuantityForWarehouse(inventoryWarehouse, request);
+            double newQuantityShelf = calculateNewQuantityForShelf(inventoryShelf, request);
+
+            if (newQuantityWarehouse < 0) {
+                throw batchFailure(request, new RuntimeException(String.format(
+                        "Not enough inventory for product %s. Available: %s, Required: %s",
+                        request.getProductId(), oldQuantityWarehouse, request.getQuantity())));
             }
+
+            inventoryWarehouse.setQuantity(newQuantityWarehouse);
+            inventoryShelf.setQuantity(newQuantityShelf);
+            updatedById.put(inventoryWarehouse.getId(), inventoryWarehouse);
+            updatedById.put(inventoryShelf.getId(), inventoryShelf);
+
+            transactions.add(inventoryTransactionMapper.toInventoryTransaction(request));
         }
 
-        log.info("Batch transaction completed successfully: {} items processed", responses.size());
-        return responses;
+        // 4. Ghi xuống DB bằng JDBC batch
+        inventoryRepository.batchUpdateQuantities(new ArrayList<>(updatedById.values()));
+        inventoryTransactionRepository.batchInsert(transactions);
+
+        log.info("Batch transaction completed successfully: {} items processed, {} inventory rows updated",
+                transactions.size(), updatedById.size());
+        return transactions.stream()
+                .map(inventoryTransactionMapper::toInventoryTransactionResponse)
+                .toList();
+    }
+
+    private RuntimeException batchFailure(InventoryTransactionRequest request, Exception cause) {
+        log.error("Failed to process transaction for product {}: {}",
+                request.getProductId(), cause.getMessage());
+
+        // Nếu có lỗi, rollback toàn bộ transaction
+        return new RuntimeException(
+                "Batch transaction failed at product " + request.getProductId(), cause);
     }
 
 
     // Lich su giao dich theo ngay
+    // Lọc theo khoảng thời gian ngay trong DB (index created_at) và group trên stream đã sắp xếp theo thời gian
+    @Transactional
     public Map<LocalDate, List<InventoryTransaction>>
     groupTransactionsByDate(LocalDate startDate, LocalDate endDate) {
-        List<InventoryTransaction> transactions = inventoryTransactionRepository.findAll();
+        try (Stream<InventoryTransaction> stream = inventoryTransactionRepository.streamByCreatedAtRange(
+                rangeStart(startDate), rangeEnd(endDate))) {
+            return stream.collect(Collectors.groupingBy(
+                    t -> t.getCreatedAt().toLocalDate(), // Group theo ngày
+                    LinkedHashMap::new,
+                    Collectors.toList()
+            ));
+        }
+    }
 
-        // Lọc theo khoảng thời gian nếu có
-        Stream<InventoryTransaction> stream = transactions.stream();
+    // Lich su giao dich cua mot ngay, phan trang
+    public InventoryTransactionPageResponse getTransactionsOfDate(LocalDate date, int page, int size) {
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                Sort.by("createdAt", "id"));
+        Page<InventoryTransaction> transactions =
+                inventoryTransactionRepository.findByCreatedAtRange(rangeStart(date), rangeEnd(date), pageable);
 
-        if (startDate != null) {
-            stream = stream.filter(t -> !t.getCreatedAt().toLocalDate().isBefore(startDate));
-        }
-        if (endDate != null) {
-            stream = stream.filter(t -> !t.getCreatedAt().toLocalDate().isAfter(endDate));
-        }
+        return InventoryTransactionPageResponse.builder()
+                .items(transactions.getContent())
+                .page(transactions.getNumber())
+                .size(transactions.getSize())
+                .totalElements(transactions.getTotalElements())
+                .totalPages(transactions.getTotalPages())
+                .build();
+    }
+
+    // Không truyền ngày thì dùng biên của kiểu DATETIME trong MySQL
+    private LocalDateTime rangeStart(LocalDate startDate) {
+        return (startDate != null ? startDate : MIN_DATE).atStartOfDay();
+    }
 
-        return stream.collect(Collectors.groupingBy(
-                t -> t.getCreatedAt().toLocalDate() // Group theo ngày
-        ));
+    private LocalDateTime rangeEnd(LocalDate endDate) {
+        return endDate != null ? endDate.plusDays(1).atStartOfDay() : MAX_DATE.atStartOfDay();
     }
 
     private void validateRequest(InventoryTransactionRequest request) {
@@ -137,15 +233,24 @@ public class InventoryTransactionService {
         }
     }
 
-    private Inventory getOrCreateInventory(SourceType sourceType, String productId) {
-        return inventoryRepository.findBySourceTypeAndProductId(sourceType, productId)
-                .orElseGet(() -> {
-                    Inventory newInventory = new Inventory();
-                    newInventory.setProductId(productId);
-                    newInventory.setSourceType(sourceType);
-                    newInventory.setQuantity(0.0);
-                    return inventoryRepository.save(newInventory);
-                });
+    // Tên của các sản phẩm chưa có tên trong tồn kho (thường là lần nhập đầu tiên), để dòng mới được tạo kèm tên.
+    // Gọi product service trước khi upsert nên chưa khoá dòng nào; sản phẩm đã có tên không tốn lời gọi nào
+    private Map<String, String> missingProductNames(Collection<String> productIds) {
+        Set<String> unnamed = new HashSet<>(productIds);
+        inventoryRepository.findNamedProductIds(productIds).forEach(unnamed::remove);
+        if (unnamed.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return productLookup.findNames(unnamed, null);
+    }
+
+    // Upsert một câu thay cho find rồi insert: không còn race tạo trùng dòng, và dòng được khoá
+    // tới hết transaction nên việc tính số lượng mới phía sau không làm mất cập nhật của giao dịch khác
+    private Inventory getOrCreateInventory(SourceType sourceType, String productId, String productName) {
+        inventoryRepository.insertIfAbsent(UUID.randomUUID().toString(), sourceType.name(), productId, productName);
+        return inventoryRepository.findForUpdate(sourceType, productId)
+                .orElseThrow(() -> new NoSuchElementException(
+                        "Inventory not found for product ID: " + productId + " and source type: " + sourceType));
     }
 
     private double calculateNewQuantityForWarehouse(Inventory inventory, InventoryTransactionRequest request) {
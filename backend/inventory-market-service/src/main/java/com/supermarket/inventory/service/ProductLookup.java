@@ -0,0 +1,71 @@
+package com.supermarket.inventory.service;
+
+import com.supermarket.inventory.dto.response.ProductResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+
+/**
+ * Lấy thông tin sản phẩm theo lô qua /products/getListProducts thay vì GET /products/{id} cho từng dòng.
+ * Danh sách id được chia chunk, các chunk chạy song song có giới hạn, kết quả gộp thành Map theo id.
+ */
+@Slf4j
+@Component
+public class ProductLookup {
+    private final WebClient webClient;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public ProductLookup(WebClient.Builder webClientBuilder,
+                         @Value("${inter-service.urls.product}") String productServiceUrl,
+                         @Value("${inventory.product-lookup.chunk-size:500}") int chunkSize,
+                         @Value("${inventory.product-lookup.parallelism:4}") int parallelism) {
+        this.webClient = webClientBuilder.baseUrl(productServiceUrl).build();
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    public Map<String, ProductResponse> findByIds(Collection<String> productIds, String tokenValue) {
+        List<String> ids = productIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) return Collections.emptyMap();
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            chunks.add(ids.subList(i, Math.min(i + chunkSize, ids.size())));
+        }
+
+        Map<String, ProductResponse> products = Flux.fromIterable(chunks)
+                .flatMap(chunk -> webClient.post()
+                        .uri("/products/getListProducts")
+                        .headers(headers -> {
+                            if (tokenValue != null) headers.setBearerAuth(tokenValue);
+                        })
+                        .bodyValue(chunk)
+                        .retrieve()
+                        .bodyToFlux(ProductResponse.class), parallelism)
+                .collectMap(ProductResponse::getId)
+                .block(); // block vì đang dùng sync
+
+        log.debug("Loaded {} products for {} ids in {} chunks", products != null ? products.size() : 0, ids.size(), chunks.size());
+        return products != null ? products : Collections.emptyMap();
+    }
+
+    // Tên sản phẩm theo id cho các luồng ghi product_name. getListProducts là endpoint public nên gọi được cả khi
+    // không có token người dùng (job định kỳ). Lỗi chỉ được log và trả về Map rỗng: tên còn thiếu sẽ được job điền sau
+    public Map<String, String> findNames(Collection<String> productIds, String tokenValue) {
+        try {
+            Map<String, String> names = new HashMap<>();
+            findByIds(productIds, tokenValue).forEach((id, product) -> {
+                if (product.getName() != null) names.put(id, product.getName());
+            });
+            return names;
+        } catch (RuntimeException e) {
+            log.warn("Cannot load product names for {} products: {}", productIds.size(), e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+}
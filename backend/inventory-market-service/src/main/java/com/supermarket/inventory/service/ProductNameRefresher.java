@@ -0,0 +1,38 @@
+package com.supermarket.inventory.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Giữ cột product_name (denormalized, dùng để sort/phân trang theo tên) khớp với product service mà không cần gọi tay.
+ * Lúc khởi động điền các dòng còn trống (kể cả ngay sau migration V3); định kỳ đối chiếu lại toàn bộ để bắt các lần
+ * product service báo thay đổi bị lỗi. Lỗi chỉ được log, lần chạy sau làm lại.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductNameRefresher {
+    private final InventoryService inventoryService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMissing() {
+        try {
+            log.info("Filled {} missing inventory product names", inventoryService.fillMissingProductNames());
+        } catch (RuntimeException e) {
+            log.warn("Cannot fill missing inventory product names: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${inventory.product-names.refresh-cron:0 30 3 * * *}")
+    public void refresh() {
+        try {
+            log.info("Refreshed {} inventory product names", inventoryService.refreshProductNames());
+        } catch (RuntimeException e) {
+            log.warn("Cannot refresh inventory product names: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- Schema gốc của inventory service (trước đây tạo tay), để DB mới dựng được từ đầu.
+-- IF NOT EXISTS: DB đang chạy đã có bảng thì giữ nguyên
+CREATE TABLE IF NOT EXISTS inventory (
+    id          VARCHAR(255) NOT NULL,
+    source_type VARCHAR(20)  NOT NULL,
+    product_id  VARCHAR(255),
+    quantity    DOUBLE       NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS inventory_transaction (
+    id         BIGINT      NOT NULL AUTO_INCREMENT,
+    order_id   VARCHAR(255),
+    product_id VARCHAR(255),
+    type       VARCHAR(10) NOT NULL,
+    quantity   DOUBLE,
+    created_at DATETIME(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,26 @@
+-- Mỗi (source_type, product_id) chỉ được có một dòng tồn kho; insertIfAbsent / batchInsertIfAbsent
+-- (INSERT ... ON DUPLICATE KEY UPDATE) dựa vào khoá này để không tạo dòng trùng.
+
+-- 1. Gộp các dòng trùng sinh ra bởi race find-then-insert cũ: dòng có id nhỏ nhất giữ tổng số lượng
+UPDATE inventory keep_row
+JOIN (SELECT source_type, product_id, MIN(id) AS keep_id, SUM(quantity) AS total_quantity
+      FROM inventory
+      WHERE product_id IS NOT NULL
+      GROUP BY source_type, product_id
+      HAVING COUNT(*) > 1) dup
+  ON keep_row.id = dup.keep_id
+SET keep_row.quantity = dup.total_quantity;
+
+-- 2. Xoá các dòng trùng còn lại
+DELETE extra_row FROM inventory extra_row
+JOIN (SELECT source_type, product_id, MIN(id) AS keep_id
+      FROM inventory
+      WHERE product_id IS NOT NULL
+      GROUP BY source_type, product_id
+      HAVING COUNT(*) > 1) dup
+  ON extra_row.source_type = dup.source_type
+ AND extra_row.product_id = dup.product_id
+ AND extra_row.id <> dup.keep_id;
+
+-- 3. Tạo khoá
+ALTER TABLE inventory ADD CONSTRAINT uk_inventory_source_product UNIQUE (source_type, product_id);
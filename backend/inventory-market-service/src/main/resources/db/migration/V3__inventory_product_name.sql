@@ -0,0 +1,6 @@
+-- Tên sản phẩm denormalized để sort/phân trang tồn kho theo tên trong DB.
+-- Cột mới để trống: chạy POST /api/inventory/productNames/refresh sau khi deploy để điền tên
+ALTER TABLE inventory ADD COLUMN product_name VARCHAR(255);
+
+CREATE INDEX idx_inventory_source_name ON inventory (source_type, product_name);
+CREATE INDEX idx_inventory_source_quantity ON inventory (source_type, quantity);
@@ -0,0 +1,2 @@
+-- Lọc lịch sử nhập/xuất theo khoảng ngày và keyset (created_at, id)
+CREATE INDEX idx_inventory_transaction_created_at ON inventory_transaction (created_at, id);
@@ -0,0 +1,16 @@
+-- Mỗi lần checkout trừ kho kèm reservationId; release chỉ cộng trả đúng những gì reservation đó đã trừ, đúng một lần.
+-- status: RESERVED (đã trừ) / RELEASED (đã cộng trả, hoặc release đến trước nên lần trừ kho đến sau bị từ chối)
+CREATE TABLE IF NOT EXISTS inventory_reservation (
+    reservation_id VARCHAR(36) NOT NULL,
+    status         VARCHAR(10) NOT NULL,
+    created_at     DATETIME(6) NOT NULL,
+    PRIMARY KEY (reservation_id),
+    INDEX idx_inventory_reservation_created_at (created_at)
+);
+
+CREATE TABLE IF NOT EXISTS inventory_reservation_item (
+    reservation_id VARCHAR(36)  NOT NULL,
+    product_id     VARCHAR(255) NOT NULL,
+    quantity       DOUBLE       NOT NULL,
+    PRIMARY KEY (reservation_id, product_id)
+);
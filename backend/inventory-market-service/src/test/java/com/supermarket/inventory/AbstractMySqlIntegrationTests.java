@@ -0,0 +1,22 @@
+package com.supermarket.inventory;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base for tests that need real MySQL locking and unique keys: a throwaway MySQL container, migrated by Flyway on startup,
+ * replaces the configured datasource. Spring starts the container with the (cached) context, so every subclass shares one;
+ * without Docker the subclasses are skipped. Keycloak is never contacted, the resource server only needs placeholder URIs.
+ */
+@SpringBootTest(properties = {
+        "spring.security.oauth2.resourceserver.jwt.issuer-uri=http://localhost/realms/test",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/realms/test/protocol/openid-connect/certs"
+})
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class AbstractMySqlIntegrationTests {
+
+    @ServiceConnection
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+}
@@ -0,0 +1,112 @@
+package com.supermarket.inventory.service;
+
+import com.supermarket.inventory.AbstractMySqlIntegrationTests;
+import com.supermarket.inventory.dto.request.InventoryTransactionRequest;
+import com.supermarket.inventory.enums.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * product_name is kept current without the manual refresh call: rows are created with the name, rows left without
+ * one are filled by the startup job, and a product change reported by product service overwrites the old name.
+ * Product service is replaced by a mocked ProductLookup.
+ */
+class InventoryProductNameTests extends AbstractMySqlIntegrationTests {
+
+    @Autowired
+    private InventoryTransactionService inventoryTransactionService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductLookup productLookup;
+
+    private String productId;
+
+    @BeforeEach
+    void setUp() {
+        productId = "named-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM inventory_transaction WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM inventory WHERE product_id = ?", productId);
+    }
+
+    @Test
+    void firstReceiptCreatesRowsWithTheProductName() {
+        when(productLookup.findNames(any(), any())).thenReturn(Map.of(productId, "Milk"));
+
+        inventoryTransactionService.transactionInventory(receipt());
+
+        assertEquals(List.of("Milk", "Milk"), names());
+    }
+
+    @Test
+    void firstBatchReceiptCreatesRowsWithTheProductName() {
+        when(productLookup.findNames(any(), any())).thenReturn(Map.of(productId, "Milk"));
+
+        inventoryTransactionService.batchTransactionInventory(List.of(receipt()));
+
+        assertEquals(List.of("Milk", "Milk"), names());
+    }
+
+    @Test
+    void rowsCreatedWhileProductServiceIsDownAreFilledLater() {
+        when(productLookup.findNames(any(), any())).thenReturn(Collections.emptyMap());
+        inventoryTransactionService.batchTransactionInventory(List.of(receipt()));
+        assertEquals(Collections.nCopies(2, null), names());
+
+        // The next receipt fills the name, and so does the startup job
+        when(productLookup.findNames(any(), any())).thenReturn(Map.of(productId, "Milk"));
+        inventoryTransactionService.transactionInventory(receipt());
+        assertEquals(List.of("Milk", "Milk"), names());
+
+        jdbcTemplate.update("UPDATE inventory SET product_name = NULL WHERE product_id = ?", productId);
+        inventoryService.fillMissingProductNames();
+        assertEquals(List.of("Milk", "Milk"), names());
+    }
+
+    @Test
+    void reportedProductChangeOverwritesTheName() {
+        when(productLookup.findNames(any(), any())).thenReturn(Map.of(productId, "Milk"));
+        inventoryTransactionService.transactionInventory(receipt());
+
+        when(productLookup.findNames(any(), any())).thenReturn(Map.of(productId, "Fresh milk"));
+        inventoryService.refreshProductNames(List.of(productId));
+
+        assertEquals(List.of("Fresh milk", "Fresh milk"), names());
+    }
+
+    private InventoryTransactionRequest receipt() {
+        return InventoryTransactionRequest.builder()
+                .orderId("names")
+                .productId(productId)
+                .quantity(1.0)
+                .type(TransactionType.IMPORT)
+                .build();
+    }
+
+    private List<String> names() {
+        return jdbcTemplate.queryForList(
+                "SELECT product_name FROM inventory WHERE product_id = ? ORDER BY source_type", String.class, productId);
+    }
+}
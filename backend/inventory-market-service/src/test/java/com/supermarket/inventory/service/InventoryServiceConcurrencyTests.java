@@ -0,0 +1,82 @@
+package com.supermarket.inventory.service;
+
+import com.supermarket.inventory.AbstractMySqlIntegrationTests;
+import com.supermarket.inventory.model.Inventory;
+import com.supermarket.inventory.model.SourceType;
+import com.supermarket.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parallel single-item decrements on one shelf row: no lost updates, no overselling.
+ */
+class InventoryServiceConcurrencyTests extends AbstractMySqlIntegrationTests {
+    private static final int INITIAL_QUANTITY = 1500;
+    private static final int DECREMENTS = 3000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    private Inventory shelf;
+
+    @BeforeEach
+    void setUp() {
+        shelf = inventoryRepository.save(Inventory.builder()
+                .sourceType(SourceType.SHELF)
+                .productId("stress-" + UUID.randomUUID())
+                .quantity((double) INITIAL_QUANTITY)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventoryRepository.deleteById(shelf.getId());
+    }
+
+    @Test
+    void parallelDecrementsNeverLoseUpdatesOrOversell() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < DECREMENTS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    inventoryService.reduceInventoryQuantity(shelf.getProductId(), 1);
+                    succeeded.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Double remaining = inventoryRepository.findById(shelf.getId()).orElseThrow().getQuantity();
+        assertEquals(INITIAL_QUANTITY, succeeded.get());
+        assertEquals(DECREMENTS - INITIAL_QUANTITY, rejected.get());
+        assertEquals(0.0, remaining);
+    }
+}
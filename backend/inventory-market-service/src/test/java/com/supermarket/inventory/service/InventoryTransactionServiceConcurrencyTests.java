@@ -0,0 +1,90 @@
+package com.supermarket.inventory.service;
+
+import com.supermarket.inventory.AbstractMySqlIntegrationTests;
+import com.supermarket.inventory.dto.request.InventoryTransactionRequest;
+import com.supermarket.inventory.enums.TransactionType;
+import com.supermarket.inventory.model.SourceType;
+import com.supermarket.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent receipts of a product that has no inventory row yet: exactly one row per source type
+ * (the unique key comes from the Flyway migrations the container schema is built with).
+ */
+class InventoryTransactionServiceConcurrencyTests extends AbstractMySqlIntegrationTests {
+    private static final int RECEIPTS = 200;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private InventoryTransactionService inventoryTransactionService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String productId;
+
+    @BeforeEach
+    void setUp() {
+        productId = "receipt-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM inventory_transaction WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM inventory WHERE product_id = ?", productId);
+    }
+
+    @Test
+    void concurrentReceiptsOfNewProductCreateOneRowPerSourceType() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < RECEIPTS; i++) {
+            final boolean batch = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                InventoryTransactionRequest request = InventoryTransactionRequest.builder()
+                        .orderId("stress")
+                        .productId(productId)
+                        .quantity(1.0)
+                        .type(TransactionType.IMPORT)
+                        .build();
+                if (batch) {
+                    inventoryTransactionService.batchTransactionInventory(List.of(request));
+                } else {
+                    inventoryTransactionService.transactionInventory(request);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory WHERE product_id = ?", Integer.class, productId);
+        assertEquals(2, rows);
+        assertEquals(RECEIPTS, inventoryRepository.findBySourceTypeAndProductId(SourceType.WAREHOUSE, productId)
+                .orElseThrow().getQuantity());
+        assertEquals(0.0, inventoryRepository.findBySourceTypeAndProductId(SourceType.SHELF, productId)
+                .orElseThrow().getQuantity());
+    }
+}
@@ -0,0 +1,4 @@
+package com.supermarket.product_market_service.event;
+
+public record ProductChangedEvent(String productId) {
+}
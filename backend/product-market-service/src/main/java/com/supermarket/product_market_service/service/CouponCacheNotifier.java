@@ -0,0 +1,58 @@
+package com.supermarket.product_market_service.service;
+
+import com.supermarket.product_market_service.event.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+/**
+ * Báo coupon-market-service xoá sản phẩm khỏi near-cache khi sản phẩm thay đổi.
+ * Chỉ gửi sau khi thay đổi đã commit, nếu không coupon service có thể nạp lại bản cũ ngay trước commit.
+ * Gọi bất đồng bộ: lỗi chỉ được log, không làm hỏng thao tác cập nhật.
+ * inter-service.urls.coupon chỉ trỏ tới MỘT instance: khi chạy nhiều instance coupon, các instance còn lại
+ * chỉ hết cũ sau coupon.product-cache.ttl (đặt ngắn, mặc định 1m), đó là độ trễ tối đa của giá trên coupon.
+ */
+@Slf4j
+@Component
+public class CouponCacheNotifier {
+    private final WebClient webClient;
+
+    public CouponCacheNotifier(WebClient.Builder webClientBuilder,
+                               @Value("${inter-service.urls.coupon}") String couponServiceUrl) {
+        this.webClient = webClientBuilder.baseUrl(couponServiceUrl).build();
+    }
+
+    // Chạy trên thread của request sau commit nên vẫn lấy được token của người dùng
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductChanged(ProductChangedEvent event) {
+        String productId = event.productId();
+        String tokenValue = getToken();
+
+        webClient.post()
+                .uri("/coupons/products/invalidate")
+                .headers(headers -> {
+                    if (tokenValue != null) headers.setBearerAuth(tokenValue);
+                })
+                .bodyValue(List.of(productId))
+                .retrieve()
+                .toBodilessEntity()
+                .doOnError(e -> log.warn("Cannot invalidate coupon product cache for {}: {}", productId, e.getMessage()))
+                .onErrorComplete()
+                .subscribe();
+    }
+
+    private String getToken() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuth) {
+            return jwtAuth.getToken().getTokenValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.supermarket.product_market_service.service;
+
+import com.supermarket.product_market_service.event.ProductChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+/**
+ * Báo inventory-market-service ghi lại tên sản phẩm denormalized (cột product_name dùng để sort tồn kho theo tên)
+ * khi sản phẩm thay đổi. Chỉ gửi sau khi thay đổi đã commit để inventory đọc được tên mới.
+ * Gọi bất đồng bộ: lỗi chỉ được log, inventory tự đối chiếu lại toàn bộ tên theo inventory.product-names.refresh-cron.
+ */
+@Slf4j
+@Component
+public class InventoryNameNotifier {
+    private final WebClient webClient;
+
+    public InventoryNameNotifier(WebClient.Builder webClientBuilder,
+                                 @Value("${inter-service.urls.inventory}") String inventoryServiceUrl) {
+        this.webClient = webClientBuilder.baseUrl(inventoryServiceUrl).build();
+    }
+
+    // Sửa/xoá sản phẩm cần role WAREHOUSE, cũng là role inventory yêu cầu, nên chuyển tiếp token của người dùng
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductChanged(ProductChangedEvent event) {
+        String productId = event.productId();
+        String tokenValue = getToken();
+
+        webClient.post()
+                .uri("/inventory/productNames/refresh")
+                .headers(headers -> {
+                    if (tokenValue != null) headers.setBearerAuth(tokenValue);
+                })
+                .bodyValue(List.of(productId))
+                .retrieve()
+                .toBodilessEntity()
+                .doOnError(e -> log.warn("Cannot refresh inventory product name for {}: {}", productId, e.getMessage()))
+                .onErrorComplete()
+                .subscribe();
+    }
+
+    private String getToken() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof JwtAuthenticationToken jwtAuth) {
+            return jwtAuth.getToken().getTokenValue();
+        }
+        return null;
+    }
+}
@@ -2,13 +2,16 @@ package com.supermarket.product_market_service.service;
 
 import com.supermarket.product_market_service.dto.request.ProductRequest;
 import com.supermarket.product_market_service.dto.response.ProductResponse;
+import com.supermarket.product_market_service.event.ProductChangedEvent;
 import com.supermarket.product_market_service.mapper.ProductMapper;
 import com.supermarket.product_market_service.model.Product;
 import com.supermarket.product_market_service.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -23,6 +26,7 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
     private final MinioService minioService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // CREATE
     public ProductResponse createProduct(ProductRequest request) {
@@ -53,6 +57,7 @@ public class ProductService {
     }
 
     // UPDATE
+    @Transactional
     public ProductResponse updateProduct(String id, ProductRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -62,11 +67,14 @@ public class ProductService {
 
         productRepository.save(product);
 
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+
         log.info("Product update successfully");
         return productMapper.toProductResponse(product);
     }
 
     // DELETE
+    @Transactional
     public void deleteProduct(String id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -74,10 +82,13 @@ public class ProductService {
         product.setDeleted(true);
         productRepository.save(product);
 
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+
         log.info("Product delete successfully");
     }
 
     // UNDO DELETE
+    @Transactional
     public void unDeleteProduct(String id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -85,6 +96,8 @@ public class ProductService {
         product.setDeleted(false);
         productRepository.save(product);
 
+        eventPublisher.publishEvent(new ProductChangedEvent(id));
+
         log.info("Product undo delete successfully");
     }
 
@@ -2,6 +2,7 @@ package com.supermarket.transaction_market_service.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -26,7 +27,7 @@ public class SecurityConfig {
 
     private final String[] MARKETING_ENDPOINT = {
             "/api/transactions/history/**",
-            "api/transactions/dashboard/**"
+            "/api/transactions/dashboard/**"
     };
 
     @Bean
@@ -34,6 +35,7 @@ public class SecurityConfig {
         return http
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(PUBLIC_ENDPOINT).permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/transactions/dashboard/rollup/rebuild").hasAnyRole("ADMIN", "MARKETING")
                         .requestMatchers(MARKETING_ENDPOINT).hasRole("MARKETING")
                         .requestMatchers("/api/transactions/**").hasRole("CASHIER")
                         .anyRequest().authenticated()
@@ -3,11 +3,14 @@ package com.supermarket.transaction_market_service.controller;
 import com.supermarket.transaction_market_service.dto.request.TransactionRequest;
 import com.supermarket.transaction_market_service.dto.response.DashboardReport;
 import com.supermarket.transaction_market_service.dto.response.DateGroupResponse;
+import com.supermarket.transaction_market_service.dto.response.TransactionPageResponse;
 import com.supermarket.transaction_market_service.service.TransactionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -48,6 +51,39 @@ public class TransactionController {
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * Get one page of transaction history, newest first (keyset pagination)
+     * GET /api/transactions/history/page?startDate=2024-11-01&endDate=2024-11-30&size=50
+     * Next page: pass nextCursorDate / nextCursorId from the previous response as cursorDate / cursorId
+     */
+    @GetMapping("/history/page")
+    public ResponseEntity<TransactionPageResponse> getTransactionHistoryPage(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate cursorDate,
+            @RequestParam(required = false) Long cursorId,
+            @RequestParam(defaultValue = "50") int size
+    ) {
+        return ResponseEntity.ok(transactionService
+                .getTransactionHistoryPage(startDate, endDate, cursorDate, cursorId, size));
+    }
+
+    /**
+     * Stream transaction history as NDJSON, one transaction per line
+     * GET /api/transactions/history/stream?startDate=2024-08-01&endDate=2024-11-30
+     */
+    @GetMapping(value = "/history/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTransactionHistory(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        StreamingResponseBody body = outputStream ->
+                transactionService.streamTransactionHistory(startDate, endDate, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     // DASH BOARD
     @GetMapping("/dashboard")
     public ResponseEntity<DashboardReport> getDashboardReport(
@@ -58,4 +94,17 @@ public class TransactionController {
         DashboardReport report = transactionService.getDashboardReport(filterType, month, year);
         return ResponseEntity.ok(report);
     }
+
+    /**
+     * Rebuild the daily dashboard rollup from raw transactions (backfill / reconciliation)
+     * POST /api/transactions/dashboard/rollup/rebuild?startDate=2024-01-01&endDate=2024-12-31
+     */
+    @PostMapping("/dashboard/rollup/rebuild")
+    public ResponseEntity<Void> rebuildDashboardRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        transactionService.rebuildDashboardRollup(startDate, endDate);
+        return ResponseEntity.noContent().build();
+    }
 }
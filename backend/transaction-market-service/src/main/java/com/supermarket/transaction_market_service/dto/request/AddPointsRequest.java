@@ -0,0 +1,18 @@
+package com.supermarket.transaction_market_service.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddPointsRequest {
+    // Khoá chống cộng trùng: customer service bỏ qua khoá đã xử lý
+    private String idempotencyKey;
+    private Long customerId;
+    private Integer rewardPoints;
+    private Integer tierPoints;
+}
@@ -0,0 +1,15 @@
+package com.supermarket.transaction_market_service.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE)
+public class ReduceInventoryRequest {
+    String productId;
+    Integer quantity;
+}
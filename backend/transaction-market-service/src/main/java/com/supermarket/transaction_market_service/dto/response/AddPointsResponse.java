@@ -0,0 +1,14 @@
+package com.supermarket.transaction_market_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AddPointsResponse {
+    private String idempotencyKey;
+    // APPLIED, DUPLICATE hoặc CUSTOMER_NOT_FOUND
+    private String status;
+}
@@ -0,0 +1,20 @@
+package com.supermarket.transaction_market_service.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageResponse {
+    private List<TransactionResponse> transactions;
+    // Con trỏ cho trang tiếp theo, null nếu đã hết dữ liệu
+    private LocalDate nextCursorDate;
+    private Long nextCursorId;
+}
@@ -0,0 +1,9 @@
+package com.supermarket.transaction_market_service.event;
+
+import com.supermarket.transaction_market_service.model.Transaction;
+import com.supermarket.transaction_market_service.model.TransactionItem;
+
+import java.util.List;
+
+public record TransactionCreatedEvent(Transaction transaction, List<TransactionItem> items) {
+}
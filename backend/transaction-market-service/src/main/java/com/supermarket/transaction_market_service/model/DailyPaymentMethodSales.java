@@ -0,0 +1,28 @@
+package com.supermarket.transaction_market_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_payment_method_sales",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"sale_date", "payment_method"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE)
+public class DailyPaymentMethodSales {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    LocalDate saleDate;
+    String paymentMethod;
+    Long transactionCount;
+}
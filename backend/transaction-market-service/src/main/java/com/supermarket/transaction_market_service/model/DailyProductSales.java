@@ -0,0 +1,30 @@
+package com.supermarket.transaction_market_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "daily_product_sales",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"sale_date", "product_name"}))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE)
+public class DailyProductSales {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    LocalDate saleDate;
+    String productName;
+    Long quantity;
+    BigDecimal revenue;
+}
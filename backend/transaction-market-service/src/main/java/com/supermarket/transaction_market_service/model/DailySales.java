@@ -0,0 +1,29 @@
+package com.supermarket.transaction_market_service.model;
+
+import com.supermarket.transaction_market_service.repository.projection.DailySalesProjection;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Bảng tổng hợp doanh thu theo ngày, được cộng dồn mỗi khi tạo giao dịch
+@Entity
+@Table(name = "daily_sales")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE)
+public class DailySales implements DailySalesProjection {
+    @Id
+    LocalDate saleDate;
+
+    BigDecimal revenue;
+    Long transactionCount;
+    Long unitsSold;
+}
@@ -0,0 +1,52 @@
+package com.supermarket.transaction_market_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+// Điểm thưởng chờ cộng cho khách hàng, được ghi cùng transaction với hoá đơn (DDL: db/migration/V4, V5)
+@Entity
+@Table(name = "loyalty_points_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_loyalty_points_outbox_key", columnNames = "idempotency_key"),
+        indexes = {
+                @Index(name = "idx_loyalty_points_outbox_due", columnList = "status, next_attempt_at, id"),
+                @Index(name = "idx_loyalty_points_outbox_sent", columnList = "status, sent_at")
+        })
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = lombok.AccessLevel.PRIVATE)
+public class LoyaltyPointsOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    Long id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    String idempotencyKey;
+
+    Long customerId;
+    Integer rewardPoints;
+    Integer tierPoints;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    OutboxStatus status;
+
+    int attempts;
+    LocalDateTime nextAttemptAt;
+    @Column(length = 500)
+    String lastError;
+
+    LocalDateTime createdAt;
+    LocalDateTime sentAt;
+
+    // Tăng mỗi lần claim; LoyaltyPointsDispatcher chỉ ghi kết quả khi version vẫn là version lúc claim (DDL: V5)
+    @Version
+    Long version;
+}
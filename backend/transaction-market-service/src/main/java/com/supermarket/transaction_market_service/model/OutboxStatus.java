@@ -0,0 +1,8 @@
+package com.supermarket.transaction_market_service.model;
+
+public enum OutboxStatus {
+    PENDING,   // chờ gửi (hoặc chờ gửi lại)
+    IN_FLIGHT, // đã được một dispatcher nhận, đang gửi; hết hạn lease (next_attempt_at) thì được nhận lại
+    SENT,      // customer service đã ghi nhận
+    FAILED     // hết số lần thử hoặc lỗi không thể thử lại
+}
@@ -11,7 +11,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = @Index(name = "idx_transactions_created_at_id", columnList = "created_at, id"))
 @Data
 @Builder
 @AllArgsConstructor
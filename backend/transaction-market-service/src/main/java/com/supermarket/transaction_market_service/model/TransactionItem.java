@@ -10,7 +10,7 @@ import lombok.experimental.FieldDefaults;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "transaction_items")
+@Table(name = "transaction_items", indexes = @Index(name = "idx_transaction_items_transaction_id", columnList = "transaction_id"))
 @Data
 @Builder
 @AllArgsConstructor
@@ -0,0 +1,41 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.dto.response.PaymentMethod;
+import com.supermarket.transaction_market_service.model.DailyPaymentMethodSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyPaymentMethodSalesRepository extends JpaRepository<DailyPaymentMethodSales, Long> {
+    @Query("SELECT new com.supermarket.transaction_market_service.dto.response.PaymentMethod(" +
+            "p.paymentMethod, SUM(p.transactionCount)) " +
+            "FROM DailyPaymentMethodSales p WHERE p.saleDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY p.paymentMethod")
+    List<PaymentMethod> sumByPaymentMethod(@Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_payment_method_sales (sale_date, payment_method, transaction_count) " +
+            "VALUES (:saleDate, :paymentMethod, 1) " +
+            "ON DUPLICATE KEY UPDATE transaction_count = transaction_count + 1",
+            nativeQuery = true)
+    void addTransaction(@Param("saleDate") LocalDate saleDate, @Param("paymentMethod") String paymentMethod);
+
+    @Modifying
+    @Query("DELETE FROM DailyPaymentMethodSales p WHERE p.saleDate BETWEEN :startDate AND :endDate")
+    void deleteBySaleDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_payment_method_sales (sale_date, payment_method, transaction_count) " +
+            "SELECT t.created_at, t.payment_method, COUNT(*) FROM transactions t " +
+            "WHERE t.created_at BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.created_at, t.payment_method",
+            nativeQuery = true)
+    void rebuild(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
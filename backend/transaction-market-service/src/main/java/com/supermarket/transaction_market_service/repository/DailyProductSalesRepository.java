@@ -0,0 +1,37 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.dto.response.TopProduct;
+import com.supermarket.transaction_market_service.model.DailyProductSales;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyProductSalesRepository extends JpaRepository<DailyProductSales, Long>, DailyProductSalesRepositoryCustom {
+    @Query("SELECT new com.supermarket.transaction_market_service.dto.response.TopProduct(" +
+            "p.productName, SUM(p.quantity), SUM(p.revenue)) " +
+            "FROM DailyProductSales p WHERE p.saleDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY p.productName ORDER BY SUM(p.revenue) DESC")
+    List<TopProduct> findTopProducts(@Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM DailyProductSales p WHERE p.saleDate BETWEEN :startDate AND :endDate")
+    void deleteBySaleDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_product_sales (sale_date, product_name, quantity, revenue) " +
+            "SELECT t.created_at, i.product_name, SUM(i.quantity), SUM(i.price_at_time * i.quantity) " +
+            "FROM transactions t JOIN transaction_items i ON i.transaction_id = t.id " +
+            "WHERE t.created_at BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.created_at, i.product_name",
+            nativeQuery = true)
+    void rebuild(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,13 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.TransactionItem;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyProductSalesRepositoryCustom {
+    /**
+     * Add the quantity and revenue of each item to its product's row for the given day, as one JDBC batch of upserts.
+     */
+    void batchAdd(LocalDate saleDate, List<TransactionItem> items);
+}
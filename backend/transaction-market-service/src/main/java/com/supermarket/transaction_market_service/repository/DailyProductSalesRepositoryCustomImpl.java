@@ -0,0 +1,33 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.TransactionItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DailyProductSalesRepositoryCustomImpl implements DailyProductSalesRepositoryCustom {
+    private static final String UPSERT_PRODUCT_SALES_SQL =
+            "INSERT INTO daily_product_sales (sale_date, product_name, quantity, revenue) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), revenue = revenue + VALUES(revenue)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchAdd(LocalDate saleDate, List<TransactionItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Date date = Date.valueOf(saleDate);
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SALES_SQL, items, items.size(), (ps, item) -> {
+            ps.setDate(1, date);
+            ps.setString(2, item.getProductName());
+            ps.setLong(3, item.getQuantity());
+            ps.setBigDecimal(4, item.getPriceAtTime().multiply(BigDecimal.valueOf(item.getQuantity())));
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate> {
+    List<DailySales> findBySaleDateBetween(LocalDate startDate, LocalDate endDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales (sale_date, revenue, transaction_count, units_sold) " +
+            "VALUES (:saleDate, :revenue, 1, :unitsSold) " +
+            "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), " +
+            "transaction_count = transaction_count + 1, units_sold = units_sold + VALUES(units_sold)",
+            nativeQuery = true)
+    void addTransaction(@Param("saleDate") LocalDate saleDate,
+                        @Param("revenue") BigDecimal revenue,
+                        @Param("unitsSold") long unitsSold);
+
+    @Modifying
+    @Query("DELETE FROM DailySales d WHERE d.saleDate BETWEEN :startDate AND :endDate")
+    void deleteBySaleDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales (sale_date, revenue, transaction_count, units_sold) " +
+            "SELECT t.created_at, SUM(t.total), COUNT(*), COALESCE(SUM(u.units), 0) " +
+            "FROM transactions t " +
+            "LEFT JOIN (SELECT i.transaction_id, SUM(i.quantity) AS units FROM transaction_items i " +
+            "           JOIN transactions ti ON ti.id = i.transaction_id " +
+            "           WHERE ti.created_at BETWEEN :startDate AND :endDate " +
+            "           GROUP BY i.transaction_id) u ON u.transaction_id = t.id " +
+            "WHERE t.created_at BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.created_at",
+            nativeQuery = true)
+    void rebuild(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,28 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.LoyaltyPointsOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LoyaltyPointsOutboxRepository extends JpaRepository<LoyaltyPointsOutbox, Long>, LoyaltyPointsOutboxRepositoryCustom {
+
+    // Nhận một lô bản ghi đến hạn; SKIP LOCKED để nhiều instance chạy dispatcher song song không gửi trùng.
+    // IN_FLIGHT quá hạn lease (dispatcher chết giữa chừng) được nhận lại như PENDING
+    @Query(value = "SELECT * FROM loyalty_points_outbox " +
+            "WHERE status IN ('PENDING', 'IN_FLIGHT') AND next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<LoyaltyPointsOutbox> claimDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Dọn các bản ghi đã gửi xong, xoá theo lô nhỏ để không khoá bảng lâu
+    @Modifying
+    @Query(value = "DELETE FROM loyalty_points_outbox WHERE status = 'SENT' AND sent_at < :cutoff LIMIT :limit",
+            nativeQuery = true)
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,14 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.LoyaltyPointsOutbox;
+
+import java.util.List;
+
+public interface LoyaltyPointsOutboxRepositoryCustom {
+    /**
+     * Write the dispatch result (status, attempts, next attempt, error, sent time) of each entry as one JDBC batch,
+     * only where the row still has the version the entry was claimed with, and bump that version.
+     * Returns the affected row count per entry, in input order; 0 means another dispatcher re-claimed the row.
+     */
+    int[] batchUpdateIfUnchanged(List<LoyaltyPointsOutbox> entries);
+}
@@ -0,0 +1,35 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.LoyaltyPointsOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class LoyaltyPointsOutboxRepositoryCustomImpl implements LoyaltyPointsOutboxRepositoryCustom {
+    private static final String UPDATE_IF_UNCHANGED_SQL =
+            "UPDATE loyalty_points_outbox SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ?, " +
+            "sent_at = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] batchUpdateIfUnchanged(List<LoyaltyPointsOutbox> entries) {
+        if (entries.isEmpty()) {
+            return new int[0];
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_IF_UNCHANGED_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getStatus().name());
+            ps.setInt(2, entry.getAttempts());
+            ps.setTimestamp(3, entry.getNextAttemptAt() == null ? null : Timestamp.valueOf(entry.getNextAttemptAt()));
+            ps.setString(4, entry.getLastError());
+            ps.setTimestamp(5, entry.getSentAt() == null ? null : Timestamp.valueOf(entry.getSentAt()));
+            ps.setLong(6, entry.getId());
+            ps.setLong(7, entry.getVersion());
+        });
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).toArray();
+    }
+}
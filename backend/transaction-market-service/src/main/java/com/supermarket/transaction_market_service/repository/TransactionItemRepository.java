@@ -1,12 +1,32 @@
 package com.supermarket.transaction_market_service.repository;
 
+import com.supermarket.transaction_market_service.dto.response.TopProduct;
 import com.supermarket.transaction_market_service.model.TransactionItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface TransactionItemRepository extends JpaRepository<TransactionItem, Long> {
+public interface TransactionItemRepository extends JpaRepository<TransactionItem, Long>, TransactionItemRepositoryCustom {
     List<TransactionItem> findByTransactionIdIn(List<Long> transactionIds);
+
+    // Join theo khoảng ngày thay vì truyền danh sách id khổng lồ vào IN
+    @Query("SELECT i FROM TransactionItem i JOIN Transaction t ON t.id = i.transactionId " +
+            "WHERE t.createdAt BETWEEN :startDate AND :endDate")
+    List<TransactionItem> findByTransactionCreatedAtBetween(@Param("startDate") LocalDate startDate,
+                                                            @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.supermarket.transaction_market_service.dto.response.TopProduct(" +
+            "i.productName, SUM(i.quantity), SUM(i.priceAtTime * i.quantity)) " +
+            "FROM TransactionItem i JOIN Transaction t ON t.id = i.transactionId " +
+            "WHERE t.createdAt BETWEEN :startDate AND :endDate " +
+            "GROUP BY i.productName ORDER BY SUM(i.priceAtTime * i.quantity) DESC")
+    List<TopProduct> findTopProducts(@Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate,
+                                     Pageable pageable);
 }
@@ -0,0 +1,13 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.TransactionItem;
+
+import java.util.List;
+
+public interface TransactionItemRepositoryCustom {
+    /**
+     * Insert all items of a basket as a single JDBC batch.
+     * IDENTITY ids disable Hibernate batching, so saveAll would still issue one INSERT per row.
+     */
+    void batchInsert(List<TransactionItem> items);
+}
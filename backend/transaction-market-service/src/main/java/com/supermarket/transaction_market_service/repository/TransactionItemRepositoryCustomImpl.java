@@ -0,0 +1,31 @@
+package com.supermarket.transaction_market_service.repository;
+
+import com.supermarket.transaction_market_service.model.TransactionItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TransactionItemRepositoryCustomImpl implements TransactionItemRepositoryCustom {
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO transaction_items (transaction_id, product_id, product_name, quantity, price_at_time) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<TransactionItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, items, items.size(), (ps, item) -> {
+            ps.setLong(1, item.getTransactionId());
+            ps.setString(2, item.getProductId());
+            ps.setString(3, item.getProductName());
+            ps.setObject(4, item.getQuantity(), Types.INTEGER);
+            ps.setBigDecimal(5, item.getPriceAtTime());
+        });
+    }
+}
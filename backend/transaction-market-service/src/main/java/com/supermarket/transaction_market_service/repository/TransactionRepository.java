@@ -1,15 +1,56 @@
 package com.supermarket.transaction_market_service.repository;
 
+import com.supermarket.transaction_market_service.dto.response.PaymentMethod;
 import com.supermarket.transaction_market_service.model.Transaction;
+import com.supermarket.transaction_market_service.repository.projection.DailySalesProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByCreatedAtBetweenOrderByCreatedAtDesc(LocalDate startDate, LocalDate endDate);
 
     List<Transaction> findByCreatedAtBetween(LocalDate startDate, LocalDate endDate);
+
+    // Keyset pagination theo (createdAt DESC, id DESC)
+    List<Transaction> findByCreatedAtBetweenOrderByCreatedAtDescIdDesc(LocalDate startDate, LocalDate endDate, Pageable pageable);
+
+    @Query("SELECT t FROM Transaction t WHERE t.createdAt BETWEEN :startDate AND :endDate " +
+            "AND (t.createdAt < :cursorDate OR (t.createdAt = :cursorDate AND t.id < :cursorId)) " +
+            "ORDER BY t.createdAt DESC, t.id DESC")
+    List<Transaction> findPageAfterCursor(@Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate,
+                                          @Param("cursorDate") LocalDate cursorDate,
+                                          @Param("cursorId") Long cursorId,
+                                          Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Transaction> streamByCreatedAtBetweenOrderByCreatedAtDescIdDesc(LocalDate startDate, LocalDate endDate);
+
+    @Query(value = "SELECT t.created_at AS saleDate, SUM(t.total) AS revenue, COUNT(*) AS transactionCount, " +
+            "COALESCE(SUM(u.units), 0) AS unitsSold " +
+            "FROM transactions t " +
+            "LEFT JOIN (SELECT i.transaction_id, SUM(i.quantity) AS units FROM transaction_items i " +
+            "           JOIN transactions ti ON ti.id = i.transaction_id " +
+            "           WHERE ti.created_at BETWEEN :startDate AND :endDate " +
+            "           GROUP BY i.transaction_id) u ON u.transaction_id = t.id " +
+            "WHERE t.created_at BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.created_at",
+            nativeQuery = true)
+    List<DailySalesProjection> sumByDay(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT new com.supermarket.transaction_market_service.dto.response.PaymentMethod(t.paymentMethod, COUNT(t)) " +
+            "FROM Transaction t WHERE t.createdAt BETWEEN :startDate AND :endDate " +
+            "GROUP BY t.paymentMethod")
+    List<PaymentMethod> countByPaymentMethod(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 }
@@ -0,0 +1,12 @@
+package com.supermarket.transaction_market_service.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Doanh thu của một ngày, lấy từ bảng tổng hợp hoặc GROUP BY trực tiếp trên bảng giao dịch
+public interface DailySalesProjection {
+    LocalDate getSaleDate();
+    BigDecimal getRevenue();
+    Long getTransactionCount();
+    Long getUnitsSold();
+}
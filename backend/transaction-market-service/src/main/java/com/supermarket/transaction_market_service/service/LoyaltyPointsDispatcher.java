@@ -0,0 +1,204 @@
+package com.supermarket.transaction_market_service.service;
+
+import com.supermarket.transaction_market_service.dto.request.AddPointsRequest;
+import com.supermarket.transaction_market_service.dto.response.AddPointsResponse;
+import com.supermarket.transaction_market_service.model.LoyaltyPointsOutbox;
+import com.supermarket.transaction_market_service.model.OutboxStatus;
+import com.supermarket.transaction_market_service.repository.LoyaltyPointsOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Gửi điểm thưởng trong outbox sang customer service theo lô, chạy nền nên quầy thu ngân không phải chờ.
+ * Ba bước: transaction ngắn nhận lô (IN_FLIGHT + lease), gọi HTTP ngoài transaction, transaction thứ hai ghi kết quả;
+ * không giữ khoá dòng hay connection DB trong lúc chờ customer service.
+ * Lỗi mạng/5xx/408/429 được thử lại với backoff luỹ thừa, các 4xx khác chuyển FAILED ngay;
+ * idempotency key đảm bảo gửi lại không cộng điểm hai lần.
+ */
+@Slf4j
+@Component
+public class LoyaltyPointsDispatcher {
+    static final String CLIENT_REGISTRATION_ID = "loyalty-dispatcher";
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final LoyaltyPointsOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WebClient customerClient;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final Duration sentRetention;
+
+    public LoyaltyPointsDispatcher(LoyaltyPointsOutboxRepository outboxRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   WebClient.Builder webClientBuilder,
+                                   OAuth2AuthorizedClientManager authorizedClientManager,
+                                   @Value("${inter-service.urls.customer}") String customerServiceUrl,
+                                   @Value("${transaction.loyalty-outbox.batch-size:100}") int batchSize,
+                                   @Value("${transaction.loyalty-outbox.max-attempts:12}") int maxAttempts,
+                                   @Value("${transaction.loyalty-outbox.initial-backoff:5s}") Duration initialBackoff,
+                                   @Value("${transaction.loyalty-outbox.max-backoff:10m}") Duration maxBackoff,
+                                   @Value("${transaction.loyalty-outbox.lease:2m}") Duration lease,
+                                   @Value("${transaction.loyalty-outbox.sent-retention:7d}") Duration sentRetention) {
+        ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2 =
+                new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
+        oauth2.setDefaultClientRegistrationId(CLIENT_REGISTRATION_ID);
+
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.customerClient = webClientBuilder.clone()
+                .baseUrl(customerServiceUrl)
+                .apply(oauth2.oauth2Configuration())
+                .build();
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.lease = lease;
+        this.sentRetention = sentRetention;
+    }
+
+    @Scheduled(fixedDelayString = "${transaction.loyalty-outbox.dispatch-interval-ms:2000}")
+    public void dispatch() {
+        List<LoyaltyPointsOutbox> due = claim();
+        if (due.isEmpty()) return;
+
+        List<AddPointsRequest> requests = due.stream()
+                .map(entry -> AddPointsRequest.builder()
+                        .idempotencyKey(entry.getIdempotencyKey())
+                        .customerId(entry.getCustomerId())
+                        .rewardPoints(entry.getRewardPoints())
+                        .tierPoints(entry.getTierPoints())
+                        .build())
+                .toList();
+
+        Map<String, String> statusByKey;
+        try {
+            List<AddPointsResponse> responses = customerClient.post()
+                    .uri("/customers/addPoints/batch")
+                    .bodyValue(requests)
+                    .retrieve()
+                    .bodyToFlux(AddPointsResponse.class)
+                    .collectList()
+                    .block();
+            statusByKey = responses == null ? Map.of() : responses.stream()
+                    .collect(Collectors.toMap(AddPointsResponse::getIdempotencyKey, AddPointsResponse::getStatus,
+                            (first, second) -> first));
+        } catch (WebClientResponseException e) {
+            if (isRetryable(e)) {
+                log.warn("Loyalty points dispatch of {} entries failed, will retry: {}", due.size(), e.getMessage());
+                due.forEach(entry -> scheduleRetry(entry, e.getMessage()));
+            } else {
+                // Lô bị customer service từ chối (400, 403, 404...): gửi lại y nguyên cũng bị từ chối
+                log.error("Loyalty points dispatch of {} entries rejected: {}", due.size(), e.getMessage());
+                due.forEach(entry -> fail(entry, e.getMessage()));
+            }
+            save(due);
+            return;
+        } catch (RuntimeException e) {
+            // Lỗi mạng / timeout
+            log.warn("Loyalty points dispatch of {} entries failed, will retry: {}", due.size(), e.getMessage());
+            due.forEach(entry -> scheduleRetry(entry, e.getMessage()));
+            save(due);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (LoyaltyPointsOutbox entry : due) {
+            String status = statusByKey.get(entry.getIdempotencyKey());
+            if ("APPLIED".equals(status) || "DUPLICATE".equals(status)) {
+                entry.setStatus(OutboxStatus.SENT);
+                entry.setSentAt(now);
+                entry.setAttempts(entry.getAttempts() + 1);
+            } else if ("CUSTOMER_NOT_FOUND".equals(status)) {
+                fail(entry, "Customer not found: " + entry.getCustomerId());
+            } else {
+                scheduleRetry(entry, "No result for idempotency key");
+            }
+        }
+        save(due);
+        log.debug("Dispatched {} loyalty points entries", due.size());
+    }
+
+    // Dọn bản ghi SENT quá hạn giữ lại, mỗi ngày một lần
+    @Scheduled(cron = "${transaction.loyalty-outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sentRetention);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = transactionTemplate.execute(status -> outboxRepository.deleteSentBefore(cutoff, PURGE_BATCH_SIZE));
+            total += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+        log.info("Purged {} sent loyalty points entries older than {}", total, cutoff);
+    }
+
+    // Transaction ngắn: khoá (SKIP LOCKED) lô đến hạn, đánh dấu IN_FLIGHT với lease rồi commit ngay.
+    // Nếu instance chết trước khi ghi kết quả, lô được nhận lại khi lease hết hạn
+    private List<LoyaltyPointsOutbox> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<LoyaltyPointsOutbox> due = outboxRepository.claimDue(now, batchSize);
+            for (LoyaltyPointsOutbox entry : due) {
+                entry.setStatus(OutboxStatus.IN_FLIGHT);
+                entry.setNextAttemptAt(now.plus(lease));
+            }
+            return outboxRepository.saveAll(due);
+        });
+    }
+
+    // Transaction thứ hai: ghi trạng thái sau khi gọi customer service, chỉ vào dòng còn đúng version lúc claim.
+    // Gọi HTTP lâu quá lease thì dispatcher khác có thể đã nhận lại dòng; kết quả muộn này bị bỏ, không ghi đè
+    private void save(List<LoyaltyPointsOutbox> entries) {
+        int[] counts = transactionTemplate.execute(status -> outboxRepository.batchUpdateIfUnchanged(entries));
+        long stale = counts == null ? 0 : Arrays.stream(counts).filter(count -> count == 0).count();
+        if (stale > 0) {
+            log.warn("Dropped {} loyalty points results for entries re-claimed after the lease expired", stale);
+        }
+    }
+
+    // 408 / 429 là quá tải tạm thời, các lỗi 4xx khác không tự hết khi gửi lại
+    private static boolean isRetryable(WebClientResponseException e) {
+        int status = e.getStatusCode().value();
+        return !e.getStatusCode().is4xxClientError() || status == 408 || status == 429;
+    }
+
+    private void fail(LoyaltyPointsOutbox entry, String error) {
+        entry.setStatus(OutboxStatus.FAILED);
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+    }
+
+    private void scheduleRetry(LoyaltyPointsOutbox entry, String error) {
+        int attempts = entry.getAttempts() + 1;
+        entry.setAttempts(attempts);
+        entry.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+        entry.setStatus(OutboxStatus.PENDING);
+
+        if (attempts >= maxAttempts) {
+            entry.setStatus(OutboxStatus.FAILED);
+            log.error("Loyalty points entry {} failed after {} attempts: {}", entry.getIdempotencyKey(), attempts, error);
+            return;
+        }
+        // 5s, 10s, 20s, ... tối đa maxBackoff
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        entry.setNextAttemptAt(LocalDateTime.now().plus(backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff));
+    }
+}
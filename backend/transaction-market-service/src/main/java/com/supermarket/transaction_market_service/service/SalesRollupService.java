@@ -0,0 +1,90 @@
+package com.supermarket.transaction_market_service.service;
+
+import com.supermarket.transaction_market_service.dto.response.PaymentMethod;
+import com.supermarket.transaction_market_service.dto.response.TopProduct;
+import com.supermarket.transaction_market_service.event.TransactionCreatedEvent;
+import com.supermarket.transaction_market_service.model.DailySales;
+import com.supermarket.transaction_market_service.model.Transaction;
+import com.supermarket.transaction_market_service.model.TransactionItem;
+import com.supermarket.transaction_market_service.repository.DailyPaymentMethodSalesRepository;
+import com.supermarket.transaction_market_service.repository.DailyProductSalesRepository;
+import com.supermarket.transaction_market_service.repository.DailySalesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Slf4j
+@Service
+public class SalesRollupService {
+    private final DailySalesRepository dailySalesRepository;
+    private final DailyProductSalesRepository dailyProductSalesRepository;
+    private final DailyPaymentMethodSalesRepository dailyPaymentMethodSalesRepository;
+    private final boolean maintainRollup;
+
+    public SalesRollupService(DailySalesRepository dailySalesRepository,
+                              DailyProductSalesRepository dailyProductSalesRepository,
+                              DailyPaymentMethodSalesRepository dailyPaymentMethodSalesRepository,
+                              @Value("${transaction.dashboard.maintain-rollup:false}") boolean maintainRollup,
+                              @Value("${transaction.dashboard.use-rollup:false}") boolean useRollup) {
+        // Đọc bảng tổng hợp mà không cập nhật thì dashboard thiếu mọi giao dịch mới
+        if (useRollup && !maintainRollup) {
+            throw new IllegalStateException("transaction.dashboard.use-rollup requires transaction.dashboard.maintain-rollup");
+        }
+        this.dailySalesRepository = dailySalesRepository;
+        this.dailyProductSalesRepository = dailyProductSalesRepository;
+        this.dailyPaymentMethodSalesRepository = dailyPaymentMethodSalesRepository;
+        this.maintainRollup = maintainRollup;
+    }
+
+    /**
+     * Cộng dồn giao dịch vào bảng tổng hợp ngay trước khi commit.
+     * Chạy cuối cùng để khóa dòng của ngày hôm nay (dòng nóng) được giữ ít thời gian nhất,
+     * nhưng vẫn cùng transaction với createTransaction nên không bao giờ lệch dữ liệu gốc.
+     * Mọi lần thanh toán đều xếp hàng trên dòng đó, nên chỉ chạy khi bật maintain-rollup.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onTransactionCreated(TransactionCreatedEvent event) {
+        if (!maintainRollup) return;
+
+        Transaction transaction = event.transaction();
+        List<TransactionItem> items = event.items();
+
+        long unitsSold = items.stream().mapToLong(TransactionItem::getQuantity).sum();
+        dailySalesRepository.addTransaction(transaction.getCreatedAt(), transaction.getTotal(), unitsSold);
+        dailyPaymentMethodSalesRepository.addTransaction(transaction.getCreatedAt(), transaction.getPaymentMethod());
+        dailyProductSalesRepository.batchAdd(transaction.getCreatedAt(), items);
+    }
+
+    // Tính lại bảng tổng hợp từ dữ liệu gốc (dùng cho dữ liệu cũ hoặc khi cần đối soát)
+    @Transactional
+    public void rebuild(LocalDate startDate, LocalDate endDate) {
+        log.info("Rebuilding sales rollup from {} to {}", startDate, endDate);
+
+        dailySalesRepository.deleteBySaleDateBetween(startDate, endDate);
+        dailyProductSalesRepository.deleteBySaleDateBetween(startDate, endDate);
+        dailyPaymentMethodSalesRepository.deleteBySaleDateBetween(startDate, endDate);
+
+        dailySalesRepository.rebuild(startDate, endDate);
+        dailyProductSalesRepository.rebuild(startDate, endDate);
+        dailyPaymentMethodSalesRepository.rebuild(startDate, endDate);
+    }
+
+    public List<DailySales> getDailySales(LocalDate startDate, LocalDate endDate) {
+        return dailySalesRepository.findBySaleDateBetween(startDate, endDate);
+    }
+
+    public List<TopProduct> getTopProducts(LocalDate startDate, LocalDate endDate, int limit) {
+        return dailyProductSalesRepository.findTopProducts(startDate, endDate, PageRequest.of(0, limit));
+    }
+
+    public List<PaymentMethod> getPaymentMethods(LocalDate startDate, LocalDate endDate) {
+        return dailyPaymentMethodSalesRepository.sumByPaymentMethod(startDate, endDate);
+    }
+}
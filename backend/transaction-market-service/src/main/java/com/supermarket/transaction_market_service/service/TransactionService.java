@@ -1,57 +1,123 @@
 package com.supermarket.transaction_market_service.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.supermarket.transaction_market_service.dto.request.Item;
+import com.supermarket.transaction_market_service.dto.request.ReduceInventoryRequest;
 import com.supermarket.transaction_market_service.dto.request.TransactionRequest;
 import com.supermarket.transaction_market_service.dto.response.*;
+import com.supermarket.transaction_market_service.event.TransactionCreatedEvent;
 import com.supermarket.transaction_market_service.mapper.TransactionItemMapper;
 import com.supermarket.transaction_market_service.mapper.TransactionMapper;
+import com.supermarket.transaction_market_service.model.DailySales;
+import com.supermarket.transaction_market_service.model.LoyaltyPointsOutbox;
+import com.supermarket.transaction_market_service.model.OutboxStatus;
 import com.supermarket.transaction_market_service.model.Transaction;
 import com.supermarket.transaction_market_service.model.TransactionItem;
+import com.supermarket.transaction_market_service.repository.LoyaltyPointsOutboxRepository;
 import com.supermarket.transaction_market_service.repository.TransactionItemRepository;
 import com.supermarket.transaction_market_service.repository.TransactionRepository;
+import com.supermarket.transaction_market_service.repository.projection.DailySalesProjection;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.TextStyle;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class TransactionService {
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final String INVENTORY_RELEASE_REGISTRATION_ID = "inventory-release";
+
     private final TransactionRepository transactionRepository;
     private final TransactionItemRepository transactionItemRepository;
+    private final LoyaltyPointsOutboxRepository loyaltyPointsOutboxRepository;
     private final TransactionMapper transactionMapper;
     private final TransactionItemMapper transactionItemMapper;
-    private final WebClient webClient;
+    private final SalesRollupService salesRollupService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final WebClient customerClient;
+    private final WebClient inventoryClient;
+    private final WebClient inventoryServiceClient;
+    private final boolean useDashboardRollup;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public TransactionService(TransactionRepository transactionRepository,
                               TransactionItemRepository transactionItemRepository,
+                              LoyaltyPointsOutboxRepository loyaltyPointsOutboxRepository,
                               TransactionMapper transactionMapper,
                               TransactionItemMapper transactionItemMapper,
-                              WebClient.Builder webClientBuilder) {
+                              SalesRollupService salesRollupService,
+                              ApplicationEventPublisher eventPublisher,
+                              ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate,
+                              WebClient.Builder webClientBuilder,
+                              OAuth2AuthorizedClientManager authorizedClientManager,
+                              @Value("${inter-service.urls.customer}") String customerServiceUrl,
+                              @Value("${inter-service.urls.inventory}") String inventoryServiceUrl,
+                              @Value("${transaction.dashboard.use-rollup:false}") boolean useDashboardRollup) {
         this.transactionRepository = transactionRepository;
         this.transactionItemRepository = transactionItemRepository;
+        this.loyaltyPointsOutboxRepository = loyaltyPointsOutboxRepository;
         this.transactionMapper = transactionMapper;
         this.transactionItemMapper = transactionItemMapper;
-        this.webClient = webClientBuilder.baseUrl("http://localhost:9000/api").build();
+        this.salesRollupService = salesRollupService;
+        this.eventPublisher = eventPublisher;
+        // Gọi thẳng customer/inventory service (không qua gateway); builder được clone nên hai client độc lập
+        this.customerClient = webClientBuilder.clone().baseUrl(customerServiceUrl).build();
+        this.inventoryClient = webClientBuilder.clone().baseUrl(inventoryServiceUrl).build();
+        // Release kho chỉ cho service account (role SERVICE), không dùng token của thu ngân
+        ServletOAuth2AuthorizedClientExchangeFilterFunction oauth2 =
+                new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
+        oauth2.setDefaultClientRegistrationId(INVENTORY_RELEASE_REGISTRATION_ID);
+        this.inventoryServiceClient = webClientBuilder.clone()
+                .baseUrl(inventoryServiceUrl)
+                .apply(oauth2.oauth2Configuration())
+                .build();
+        this.useDashboardRollup = useDashboardRollup;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // CREATE TRANSACTION
+    // Các lời gọi HTTP (tra khách hàng, trừ kho) chạy trước, không giữ connection DB; chỉ phần ghi cục bộ
+    // nằm trong transaction. Nếu ghi cục bộ lỗi sau khi đã trừ kho thì gọi inventory trả lại số lượng
     public void createTransaction(TransactionRequest request) {
         String tokenValue = getToken();
         String cardNumber = request.getCardNumber();
         Long customerId;
 
-        System.out.print(cardNumber);
         if (cardNumber == null || cardNumber.isEmpty()) {
             customerId = 99999L; // Default guest customer ID
         } else {
-            customerId = webClient.get()
+            customerId = customerClient.get()
                     .uri("/customers/getIdByCardNumber/{cardNumber}", request.getCardNumber())
                     .headers(headers -> {
                         assert tokenValue != null;
@@ -62,6 +128,50 @@ public class TransactionService {
                     .block();
         }
 
+        // Reserve shelf stock for the whole basket in one call
+        List<ReduceInventoryRequest> reductions = request.getItems().stream()
+                .collect(Collectors.toMap(Item::getId, Item::getQuantity, Integer::sum, LinkedHashMap::new))
+                .entrySet().stream()
+                .map(entry -> new ReduceInventoryRequest(entry.getKey(), entry.getValue()))
+                .toList();
+
+        // Inventory ghi lại reservation này: release cộng trả đúng số đã trừ, gọi lại nhiều lần cũng không cộng thêm
+        String reservationId = UUID.randomUUID().toString();
+        try {
+            inventoryClient.put()
+                    .uri(uriBuilder -> uriBuilder.path("/inventory/reduceInventory/batch")
+                            .queryParam("reservationId", reservationId)
+                            .build())
+                    .headers(headers -> {
+                        assert tokenValue != null;
+                        headers.setBearerAuth(tokenValue);
+                    })
+                    .bodyValue(reductions)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block();
+        } catch (WebClientResponseException e) {
+            // 4xx (thiếu hàng, request sai): inventory đã rollback, không có gì để trả
+            if (!e.getStatusCode().is4xxClientError()) {
+                releaseStock(reservationId);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            // Timeout/mất kết nối: inventory có thể đã (hoặc sắp) commit lần trừ kho. Release theo reservationId
+            // vẫn đúng trong cả hai trường hợp: nếu lần trừ kho chưa tới, inventory sẽ từ chối nó khi tới sau
+            releaseStock(reservationId);
+            throw e;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveTransaction(request, customerId));
+        } catch (RuntimeException e) {
+            releaseStock(reservationId);
+            throw e;
+        }
+    }
+
+    private void saveTransaction(TransactionRequest request, Long customerId) {
         Transaction transaction = Transaction.builder()
                 .customerId(customerId)
                 .total(request.getTotal())
@@ -71,30 +181,21 @@ public class TransactionService {
 
         transactionRepository.save(transaction);
 
-        request.getItems().forEach(item -> {
-            TransactionItem transactionItem = TransactionItem.builder()
-                    .productId(item.getId())
-                    .productName(item.getName())
-                    .quantity(item.getQuantity())
-                    .priceAtTime(item.getPrice())
-                    .transactionId(transaction.getId())
-                    .build();
+        List<TransactionItem> transactionItems = request.getItems().stream()
+                .map(item -> TransactionItem.builder()
+                        .productId(item.getId())
+                        .productName(item.getName())
+                        .quantity(item.getQuantity())
+                        .priceAtTime(item.getPrice())
+                        .transactionId(transaction.getId())
+                        .build())
+                .toList();
 
-            webClient.put()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/inventory/reduceInventory/{productId}")
-                            .queryParam("quantity", item.getQuantity())
-                            .build(item.getId()))
-                    .headers(headers -> {
-                        assert tokenValue != null;
-                        headers.setBearerAuth(tokenValue);
-                    })
-                    .retrieve()
-                    .bodyToMono(Long.class)
-                    .block();
+        transactionItemRepository.batchInsert(transactionItems);
+
+        // Daily rollup is updated right before this transaction commits (see SalesRollupService)
+        eventPublisher.publishEvent(new TransactionCreatedEvent(transaction, transactionItems));
 
-            transactionItemRepository.save(transactionItem);
-        });
         // Update customer points
         assert customerId != null;
         if (customerId.equals(99999L)) {
@@ -103,19 +204,33 @@ public class TransactionService {
         Integer rewardPoints = (int) request.getTotal().longValue() / 100000;
         Integer tierPoints = (int) request.getTotal().longValue() / 200000;    // 1 points per 200.000d spent
 
-        webClient.put()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/customers/addPoints/{customerId}")
-                        .queryParam("rewardPoints", rewardPoints)
-                        .queryParam("tierPoints", tierPoints)
-                        .build(customerId))
-                .headers(headers -> {
-                    assert tokenValue != null;
-                    headers.setBearerAuth(tokenValue);
-                })
-                .retrieve()
-                .bodyToMono(Long.class)
-                .block();
+        // Ghi vào outbox cùng transaction với hoá đơn; LoyaltyPointsDispatcher gửi sang customer service ở nền
+        LocalDateTime now = LocalDateTime.now();
+        loyaltyPointsOutboxRepository.save(LoyaltyPointsOutbox.builder()
+                .idempotencyKey("transaction-" + transaction.getId())
+                .customerId(customerId)
+                .rewardPoints(rewardPoints)
+                .tierPoints(tierPoints)
+                .status(OutboxStatus.PENDING)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build());
+    }
+
+    // Bù trừ: trả lại số lượng đã trừ trên kệ. Không ném lỗi để giữ nguyên lỗi gốc cho bên gọi
+    // Nếu chính lời gọi release thất bại, reservationId trong log là đủ để release tay:
+    // POST /api/inventory/releaseInventory/{reservationId} bằng service account
+    private void releaseStock(String reservationId) {
+        try {
+            inventoryServiceClient.post()
+                    .uri("/inventory/releaseInventory/{reservationId}", reservationId)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .block();
+        } catch (RuntimeException e) {
+            log.error("Could not release shelf stock reservation {} after failed transaction: {}",
+                    reservationId, e.getMessage());
+        }
     }
 
     // GET ALL TRANSACTIONS
@@ -128,14 +243,9 @@ public class TransactionService {
             return new ArrayList<>();
         }
 
-        // Get all transaction IDs
-        List<Long> transactionIds = transactions.stream()
-                .map(Transaction::getId)
-                .collect(Collectors.toList());
-
-        // Get all transaction items
+        // Get all transaction items in the same date range (join, no IN list)
         List<TransactionItem> allItems = transactionItemRepository
-                .findByTransactionIdIn(transactionIds);
+                .findByTransactionCreatedAtBetween(startDate, endDate);
 
         // Group items by transaction ID using MapStruct
         Map<Long, List<TransactionItemResponse>> itemsByTransaction = allItems.stream()
@@ -206,6 +316,84 @@ public class TransactionService {
         return getTransactionHistory(startDate, endDate);
     }
 
+    // GET TRANSACTION HISTORY PAGE (keyset: createdAt DESC, id DESC)
+    public TransactionPageResponse getTransactionHistoryPage(LocalDate startDate, LocalDate endDate,
+                                                             LocalDate cursorDate, Long cursorId, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // Fetch one extra row to know whether another page exists
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<Transaction> transactions = (cursorDate == null || cursorId == null)
+                ? transactionRepository.findByCreatedAtBetweenOrderByCreatedAtDescIdDesc(startDate, endDate, limit)
+                : transactionRepository.findPageAfterCursor(startDate, endDate, cursorDate, cursorId, limit);
+
+        boolean hasNext = transactions.size() > pageSize;
+        if (hasNext) {
+            transactions = transactions.subList(0, pageSize);
+        }
+        Transaction last = hasNext ? transactions.get(transactions.size() - 1) : null;
+
+        return TransactionPageResponse.builder()
+                .transactions(toResponsesWithItems(transactions))
+                .nextCursorDate(last != null ? last.getCreatedAt() : null)
+                .nextCursorId(last != null ? last.getId() : null)
+                .build();
+    }
+
+    // STREAM TRANSACTION HISTORY AS NDJSON (one transaction with its items per line)
+    @Transactional(readOnly = true)
+    public void streamTransactionHistory(LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        try (Stream<Transaction> transactions = transactionRepository
+                .streamByCreatedAtBetweenOrderByCreatedAtDescIdDesc(startDate, endDate)) {
+            List<Transaction> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    writeChunk(chunk, outputStream);
+                    chunk.clear();
+                }
+            }
+            writeChunk(chunk, outputStream);
+        }
+    }
+
+    private void writeChunk(List<Transaction> chunk, OutputStream outputStream) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (TransactionResponse response : toResponsesWithItems(chunk)) {
+            outputStream.write(objectMapper.writeValueAsBytes(response));
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+        // Drop streamed entities so memory stays flat whatever the date range
+        entityManager.clear();
+    }
+
+    // Một câu IN cho cả lô: caller đã giới hạn kích thước (trang <= MAX_PAGE_SIZE, stream theo STREAM_CHUNK_SIZE)
+    private List<TransactionResponse> toResponsesWithItems(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<TransactionItemResponse>> itemsByTransaction = transactionItemRepository
+                .findByTransactionIdIn(transactions.stream().map(Transaction::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(
+                        TransactionItem::getTransactionId,
+                        Collectors.mapping(transactionItemMapper::toResponse, Collectors.toList())
+                ));
+
+        return transactions.stream()
+                .map(transaction -> {
+                    TransactionResponse dto = transactionMapper.toResponse(transaction);
+                    dto.setItems(itemsByTransaction.getOrDefault(transaction.getId(), new ArrayList<>()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
     public DashboardReport getDashboardReport(String filterType, Integer month, Integer year) {
         LocalDate startDate, endDate;
 
@@ -218,27 +406,44 @@ public class TransactionService {
             endDate = LocalDate.of(year, 12, 31);
         }
 
+        if (!useDashboardRollup) {
+            // Aggregate straight from the raw tables: only grouped rows leave the database
+            List<DailySalesProjection> dailySales = transactionRepository.sumByDay(startDate, endDate);
+
+            return DashboardReport.builder()
+                    .summary(getSummary(dailySales))
+                    .revenueChart(getRevenueChart(dailySales, startDate, endDate, filterType))
+                    .topProducts(transactionItemRepository.findTopProducts(startDate, endDate, PageRequest.of(0, 10)))
+                    .paymentMethods(transactionRepository.countByPaymentMethod(startDate, endDate))
+                    .build();
+        }
+
+        // Month/year views read at most 31/366 pre-aggregated rows instead of the raw tables
+        List<DailySales> dailySales = salesRollupService.getDailySales(startDate, endDate);
+
         return DashboardReport.builder()
-                .summary(getSummary(startDate, endDate))
-                .revenueChart(getRevenueChart(startDate, endDate, filterType))
-                .topProducts(getTopProducts(startDate, endDate))
-                .paymentMethods(getPaymentMethods(startDate, endDate))
+                .summary(getSummary(dailySales))
+                .revenueChart(getRevenueChart(dailySales, startDate, endDate, filterType))
+                .topProducts(salesRollupService.getTopProducts(startDate, endDate, 10))
+                .paymentMethods(salesRollupService.getPaymentMethods(startDate, endDate))
                 .build();
     }
 
-    private Summary getSummary(LocalDate startDate, LocalDate endDate) {
-        var transactions = transactionRepository.findByCreatedAtBetween(startDate, endDate);
+    public void rebuildDashboardRollup(LocalDate startDate, LocalDate endDate) {
+        salesRollupService.rebuild(startDate, endDate);
+    }
 
-        BigDecimal totalRevenue = transactions.stream()
-                .map(Transaction::getTotal)
+    private Summary getSummary(List<? extends DailySalesProjection> dailySales) {
+        BigDecimal totalRevenue = dailySales.stream()
+                .map(DailySalesProjection::getRevenue)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        long totalTransactions = (long) transactions.size();
+        long totalTransactions = dailySales.stream()
+                .mapToLong(DailySalesProjection::getTransactionCount)
+                .sum();
 
-        Long totalProducts = transactionItemRepository
-                .findByTransactionIdIn(transactions.stream().map(Transaction::getId).collect(Collectors.toList()))
-                .stream()
-                .mapToLong(TransactionItem::getQuantity)
+        Long totalProducts = dailySales.stream()
+                .mapToLong(DailySalesProjection::getUnitsSold)
                 .sum();
 
         BigDecimal avgOrderValue = totalTransactions > 0
@@ -253,9 +458,7 @@ public class TransactionService {
                 .build();
     }
 
-    private List<RevenueChart> getRevenueChart(LocalDate startDate, LocalDate endDate, String filterType) {
-        var transactions = transactionRepository.findByCreatedAtBetween(startDate, endDate);
-
+    private List<RevenueChart> getRevenueChart(List<? extends DailySalesProjection> dailySales, LocalDate startDate, LocalDate endDate, String filterType) {
         Map<String, BigDecimal> revenueMap = new HashMap<>();
 
         if ("month".equals(filterType)) {
@@ -264,9 +467,9 @@ public class TransactionService {
                 revenueMap.put("Day " + date.getDayOfMonth(), BigDecimal.ZERO);
             }
 
-            for (var transaction : transactions) {
-                String key = "Day " + transaction.getCreatedAt().getDayOfMonth();
-                revenueMap.merge(key, transaction.getTotal(), BigDecimal::add);
+            for (var day : dailySales) {
+                String key = "Day " + day.getSaleDate().getDayOfMonth();
+                revenueMap.merge(key, day.getRevenue(), BigDecimal::add);
             }
         } else {
             // Group by month
@@ -275,9 +478,9 @@ public class TransactionService {
                 revenueMap.put(monthDate.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH), BigDecimal.ZERO);
             }
 
-            for (var transaction : transactions) {
-                String key = transaction.getCreatedAt().getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
-                revenueMap.merge(key, transaction.getTotal(), BigDecimal::add);
+            for (var day : dailySales) {
+                String key = day.getSaleDate().getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+                revenueMap.merge(key, day.getRevenue(), BigDecimal::add);
             }
         }
 
@@ -289,52 +492,6 @@ public class TransactionService {
                 .collect(Collectors.toList());
     }
 
-    private List<TopProduct> getTopProducts(LocalDate startDate, LocalDate endDate) {
-        var transactions = transactionRepository.findByCreatedAtBetween(startDate, endDate);
-        var transactionIds = transactions.stream().map(Transaction::getId).collect(Collectors.toList());
-        var items = transactionItemRepository.findByTransactionIdIn(transactionIds);
-
-        Map<String, TopProduct> productMap = new HashMap<>();
-
-        for (var item : items) {
-            productMap.merge(
-                    item.getProductName(),
-                    TopProduct.builder()
-                            .productName(item.getProductName())
-                            .totalQuantity((long) item.getQuantity())
-                            .totalRevenue(item.getPriceAtTime().multiply(BigDecimal.valueOf(item.getQuantity())))
-                            .build(),
-                    (existing, newVal) -> TopProduct.builder()
-                            .productName(existing.getProductName())
-                            .totalQuantity(existing.getTotalQuantity() + newVal.getTotalQuantity())
-                            .totalRevenue(existing.getTotalRevenue().add(newVal.getTotalRevenue()))
-                            .build()
-            );
-        }
-
-        return productMap.values().stream()
-                .sorted((a, b) -> b.getTotalRevenue().compareTo(a.getTotalRevenue()))
-                .limit(10)
-                .collect(Collectors.toList());
-    }
-
-    private List<PaymentMethod> getPaymentMethods(LocalDate startDate, LocalDate endDate) {
-        var transactions = transactionRepository.findByCreatedAtBetween(startDate, endDate);
-
-        Map<String, Long> methodCount = transactions.stream()
-                .collect(Collectors.groupingBy(
-                        Transaction::getPaymentMethod,
-                        Collectors.counting()
-                ));
-
-        return methodCount.entrySet().stream()
-                .map(entry -> PaymentMethod.builder()
-                        .name(entry.getKey())
-                        .count(entry.getValue())
-                        .build())
-                .collect(Collectors.toList());
-    }
-
     public String getToken() {
         // 🔸 Lấy token từ SecurityContext
         var authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -0,0 +1,20 @@
+-- Schema gốc của transaction service (trước đây tạo tay), để DB mới dựng được từ đầu.
+-- IF NOT EXISTS: DB đang chạy đã có bảng thì giữ nguyên
+CREATE TABLE IF NOT EXISTS transactions (
+    id             BIGINT NOT NULL AUTO_INCREMENT,
+    customer_id    BIGINT,
+    total          DECIMAL(38, 2),
+    payment_method VARCHAR(255),
+    created_at     DATE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS transaction_items (
+    id             BIGINT NOT NULL AUTO_INCREMENT,
+    transaction_id BIGINT,
+    product_id     VARCHAR(255),
+    product_name   VARCHAR(255),
+    quantity       INT,
+    price_at_time  DECIMAL(38, 2),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,50 @@
+-- Bảng tổng hợp doanh thu theo ngày cho dashboard (SalesRollupService cộng dồn khi tạo giao dịch)
+CREATE TABLE daily_sales (
+    sale_date         DATE           NOT NULL,
+    revenue           DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    transaction_count BIGINT         NOT NULL DEFAULT 0,
+    units_sold        BIGINT         NOT NULL DEFAULT 0,
+    PRIMARY KEY (sale_date)
+);
+
+CREATE TABLE daily_payment_method_sales (
+    id                BIGINT       NOT NULL AUTO_INCREMENT,
+    sale_date         DATE         NOT NULL,
+    payment_method    VARCHAR(255),
+    transaction_count BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_daily_payment_method_sales UNIQUE (sale_date, payment_method)
+);
+
+CREATE TABLE daily_product_sales (
+    id           BIGINT         NOT NULL AUTO_INCREMENT,
+    sale_date    DATE           NOT NULL,
+    product_name VARCHAR(255),
+    quantity     BIGINT         NOT NULL DEFAULT 0,
+    revenue      DECIMAL(38, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_daily_product_sales UNIQUE (sale_date, product_name)
+);
+
+-- Backfill toàn bộ dữ liệu cũ (cùng câu truy vấn với SalesRollupService.rebuild, không giới hạn ngày)
+INSERT INTO daily_sales (sale_date, revenue, transaction_count, units_sold)
+SELECT t.created_at, SUM(t.total), COUNT(*), COALESCE(SUM(u.units), 0)
+FROM transactions t
+LEFT JOIN (SELECT i.transaction_id, SUM(i.quantity) AS units
+           FROM transaction_items i
+           GROUP BY i.transaction_id) u ON u.transaction_id = t.id
+WHERE t.created_at IS NOT NULL
+GROUP BY t.created_at;
+
+INSERT INTO daily_payment_method_sales (sale_date, payment_method, transaction_count)
+SELECT t.created_at, t.payment_method, COUNT(*)
+FROM transactions t
+WHERE t.created_at IS NOT NULL
+GROUP BY t.created_at, t.payment_method;
+
+INSERT INTO daily_product_sales (sale_date, product_name, quantity, revenue)
+SELECT t.created_at, i.product_name, SUM(i.quantity), SUM(i.price_at_time * i.quantity)
+FROM transactions t
+JOIN transaction_items i ON i.transaction_id = t.id
+WHERE t.created_at IS NOT NULL
+GROUP BY t.created_at, i.product_name;
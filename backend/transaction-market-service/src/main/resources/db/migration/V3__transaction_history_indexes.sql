@@ -0,0 +1,3 @@
+-- Index cho keyset pagination / stream lịch sử (created_at DESC, id DESC) và nạp item theo transaction_id
+CREATE INDEX idx_transactions_created_at_id ON transactions (created_at, id);
+CREATE INDEX idx_transaction_items_transaction_id ON transaction_items (transaction_id);
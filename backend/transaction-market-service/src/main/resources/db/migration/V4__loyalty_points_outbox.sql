@@ -0,0 +1,20 @@
+-- Outbox điểm thưởng: ghi cùng transaction với hoá đơn, LoyaltyPointsDispatcher gửi sang customer service
+CREATE TABLE IF NOT EXISTS loyalty_points_outbox (
+    id              BIGINT       NOT NULL AUTO_INCREMENT,
+    idempotency_key VARCHAR(64)  NOT NULL,
+    customer_id     BIGINT,
+    reward_points   INT,
+    tier_points     INT,
+    status          VARCHAR(10)  NOT NULL,
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6),
+    last_error      VARCHAR(500),
+    created_at      DATETIME(6),
+    sent_at         DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_loyalty_points_outbox_key UNIQUE (idempotency_key),
+    -- claimDue: status IN (...) AND next_attempt_at <= ? ORDER BY id
+    INDEX idx_loyalty_points_outbox_due (status, next_attempt_at, id),
+    -- deleteSentBefore: status = 'SENT' AND sent_at < ?
+    INDEX idx_loyalty_points_outbox_sent (status, sent_at)
+);
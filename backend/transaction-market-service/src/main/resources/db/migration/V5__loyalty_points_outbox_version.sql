@@ -0,0 +1,4 @@
+-- Khoá lạc quan cho outbox: claim tăng version qua JPA, ghi kết quả chỉ thành công khi version chưa đổi,
+-- để kết quả về muộn không ghi đè lô mà dispatcher khác đã nhận lại sau khi lease hết hạn
+ALTER TABLE loyalty_points_outbox
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
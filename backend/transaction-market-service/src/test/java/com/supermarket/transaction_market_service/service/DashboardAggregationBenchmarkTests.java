@@ -0,0 +1,173 @@
+package com.supermarket.transaction_market_service.service;
+
+import com.supermarket.transaction_market_service.model.Transaction;
+import com.supermarket.transaction_market_service.model.TransactionItem;
+import com.supermarket.transaction_market_service.repository.TransactionItemRepository;
+import com.supermarket.transaction_market_service.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the old in-memory dashboard aggregation with the SQL GROUP BY projections
+ * over one year of synthetic data (year 2099, removed afterwards).
+ * Runs against a throwaway MySQL container migrated by Flyway, never the configured DB; skipped without Docker.
+ * The OAuth client and resource server only need placeholder values here: nothing calls Keycloak,
+ * and the loyalty dispatcher finds an empty outbox.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.security.oauth2.resourceserver.jwt.issuer-uri=http://localhost/realms/test",
+        "spring.security.oauth2.resourceserver.jwt.jwk-set-uri=http://localhost/realms/test/protocol/openid-connect/certs",
+        "spring.security.oauth2.client.registration.loyalty-dispatcher.client-secret=unused",
+        "spring.security.oauth2.client.registration.inventory-release.client-secret=unused",
+        "spring.security.oauth2.client.provider.keycloak.token-uri=http://localhost/realms/test/protocol/openid-connect/token"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DashboardAggregationBenchmarkTests {
+    private static final int YEAR = 2099;
+    private static final int TRANSACTIONS_PER_DAY = 200;
+    private static final int ITEMS_PER_TRANSACTION = 5;
+    private static final int ROUNDS = 5;
+
+    private static final LocalDate START = LocalDate.of(YEAR, 1, 1);
+    private static final LocalDate END = LocalDate.of(YEAR, 12, 31);
+
+    @ServiceConnection
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionItemRepository transactionItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        Random random = new Random(42);
+        String[] paymentMethods = {"Cash", "QR"};
+
+        for (LocalDate day = START; !day.isAfter(END); day = day.plusDays(1)) {
+            List<Object[]> transactions = new ArrayList<>();
+            for (int i = 0; i < TRANSACTIONS_PER_DAY; i++) {
+                transactions.add(new Object[]{
+                        99999L, BigDecimal.valueOf(10_000L + random.nextInt(1_000_000)),
+                        paymentMethods[random.nextInt(2)], Date.valueOf(day)});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO transactions (customer_id, total, payment_method, created_at) VALUES (?, ?, ?, ?)",
+                    transactions);
+
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM transactions WHERE created_at = ?", Long.class, Date.valueOf(day));
+            List<TransactionItem> items = new ArrayList<>();
+            for (Long id : ids) {
+                for (int j = 0; j < ITEMS_PER_TRANSACTION; j++) {
+                    int product = random.nextInt(500);
+                    items.add(TransactionItem.builder()
+                            .transactionId(id)
+                            .productId("bench-" + product)
+                            .productName("Benchmark product " + product)
+                            .quantity(1 + random.nextInt(5))
+                            .priceAtTime(BigDecimal.valueOf(1_000L + product * 100L))
+                            .build());
+                }
+            }
+            transactionItemRepository.batchInsert(items);
+        }
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("DELETE i FROM transaction_items i JOIN transactions t ON t.id = i.transaction_id " +
+                "WHERE t.created_at BETWEEN ? AND ?", Date.valueOf(START), Date.valueOf(END));
+        jdbcTemplate.update("DELETE FROM transactions WHERE created_at BETWEEN ? AND ?",
+                Date.valueOf(START), Date.valueOf(END));
+    }
+
+    @Test
+    void compareInMemoryAndProjectionAggregation() {
+        double inMemoryMs = measure("in-memory (before)", this::aggregateInMemory);
+        double projectionMs = measure("GROUP BY projections (after)", this::aggregateWithProjections);
+
+        assertTrue(projectionMs < inMemoryMs,
+                "GROUP BY projections (" + projectionMs + " ms) should beat in-memory aggregation (" + inMemoryMs + " ms)");
+    }
+
+    // Same work the dashboard used to do: four range scans and two full item loads
+    private Object aggregateInMemory() {
+        List<Transaction> summaryTransactions = transactionRepository.findByCreatedAtBetween(START, END);
+        BigDecimal revenue = summaryTransactions.stream().map(Transaction::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        long units = transactionItemRepository
+                .findByTransactionIdIn(summaryTransactions.stream().map(Transaction::getId).toList())
+                .stream().mapToLong(TransactionItem::getQuantity).sum();
+
+        Map<Integer, BigDecimal> byMonth = transactionRepository.findByCreatedAtBetween(START, END).stream()
+                .collect(Collectors.toMap(t -> t.getCreatedAt().getMonthValue(), Transaction::getTotal, BigDecimal::add));
+
+        List<Transaction> productTransactions = transactionRepository.findByCreatedAtBetween(START, END);
+        Map<String, BigDecimal> byProduct = transactionItemRepository
+                .findByTransactionIdIn(productTransactions.stream().map(Transaction::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(TransactionItem::getProductName,
+                        i -> i.getPriceAtTime().multiply(BigDecimal.valueOf(i.getQuantity())), BigDecimal::add));
+
+        Map<String, Long> byPayment = transactionRepository.findByCreatedAtBetween(START, END).stream()
+                .collect(Collectors.groupingBy(Transaction::getPaymentMethod, Collectors.counting()));
+
+        return List.of(revenue, units, byMonth, byProduct.size(), byPayment);
+    }
+
+    private Object aggregateWithProjections() {
+        return List.of(
+                transactionRepository.sumByDay(START, END),
+                transactionItemRepository.findTopProducts(START, END, PageRequest.of(0, 10)),
+                transactionRepository.countByPaymentMethod(START, END));
+    }
+
+    // Returns the average latency in milliseconds
+    private double measure(String name, Supplier<Object> aggregation) {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        aggregation.get(); // warm-up
+
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            aggregation.get();
+            totalNanos += System.nanoTime() - start;
+            totalBytes += threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        }
+
+        double avgMs = totalNanos / 1e6 / ROUNDS;
+        log.info("{} avg latency: {} ms, avg heap allocated: {} MB", name,
+                String.format("%.1f", avgMs), String.format("%.1f", totalBytes / 1024.0 / 1024.0 / ROUNDS));
+        return avgMs;
+    }
+}
@@ -0,0 +1,167 @@
+package com.supermarket.transaction_market_service.service;
+
+import com.supermarket.transaction_market_service.model.LoyaltyPointsOutbox;
+import com.supermarket.transaction_market_service.model.OutboxStatus;
+import com.supermarket.transaction_market_service.repository.LoyaltyPointsOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Outcome of one dispatch round per customer service response, and the versioned write that keeps a late result
+ * from overwriting an entry another dispatcher re-claimed. Customer service is replaced by a canned exchange function.
+ */
+class LoyaltyPointsDispatcherTests {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final LoyaltyPointsOutboxRepository outboxRepository = mock(LoyaltyPointsOutboxRepository.class);
+    private final List<LoyaltyPointsOutbox> written = new ArrayList<>();
+
+    @Test
+    void rejectedBatchFailsImmediately() {
+        List<LoyaltyPointsOutbox> entries = List.of(entry(1L, "k1", 0), entry(2L, "k2", 0));
+
+        claim(entries);
+        dispatcher(HttpStatus.BAD_REQUEST, "").dispatch();
+
+        assertEquals(2, written.size());
+        for (LoyaltyPointsOutbox entry : written) {
+            assertEquals(OutboxStatus.FAILED, entry.getStatus());
+            assertEquals(1, entry.getAttempts());
+        }
+    }
+
+    @Test
+    void serverErrorsAndThrottlingAreRetriedWithBackoff() {
+        for (HttpStatus status : List.of(HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.TOO_MANY_REQUESTS, HttpStatus.REQUEST_TIMEOUT)) {
+            written.clear();
+            LocalDateTime before = LocalDateTime.now();
+
+            claim(List.of(entry(1L, "k1", 0)));
+            dispatcher(status, "").dispatch();
+
+            LoyaltyPointsOutbox entry = written.get(0);
+            assertEquals(OutboxStatus.PENDING, entry.getStatus(), status.toString());
+            assertEquals(1, entry.getAttempts());
+            assertTrue(entry.getNextAttemptAt().isAfter(before));
+        }
+    }
+
+    @Test
+    void lastRetryFailsTheEntry() {
+        claim(List.of(entry(1L, "k1", MAX_ATTEMPTS - 1)));
+        dispatcher(HttpStatus.SERVICE_UNAVAILABLE, "").dispatch();
+
+        assertEquals(OutboxStatus.FAILED, written.get(0).getStatus());
+        assertEquals(MAX_ATTEMPTS, written.get(0).getAttempts());
+    }
+
+    @Test
+    void perEntryStatusesDecideTheOutcome() {
+        List<LoyaltyPointsOutbox> entries = List.of(entry(1L, "applied", 0), entry(2L, "duplicate", 0),
+                entry(3L, "missing-customer", 0), entry(4L, "no-result", 0));
+        String body = "[{\"idempotencyKey\":\"applied\",\"status\":\"APPLIED\"}," +
+                "{\"idempotencyKey\":\"duplicate\",\"status\":\"DUPLICATE\"}," +
+                "{\"idempotencyKey\":\"missing-customer\",\"status\":\"CUSTOMER_NOT_FOUND\"}]";
+
+        claim(entries);
+        dispatcher(HttpStatus.OK, body).dispatch();
+
+        assertEquals(OutboxStatus.SENT, written.get(0).getStatus());
+        assertTrue(written.get(0).getSentAt() != null);
+        assertEquals(OutboxStatus.SENT, written.get(1).getStatus());
+        assertEquals(OutboxStatus.FAILED, written.get(2).getStatus());
+        assertEquals(OutboxStatus.PENDING, written.get(3).getStatus());
+        assertNull(written.get(3).getSentAt());
+    }
+
+    @Test
+    void resultIsWrittenAgainstTheClaimedVersion() {
+        LoyaltyPointsOutbox entry = entry(1L, "k1", 0);
+        entry.setVersion(7L);
+        // 0 rows: another dispatcher re-claimed the entry after the lease expired; the late result is dropped quietly
+        when(outboxRepository.batchUpdateIfUnchanged(anyList())).thenAnswer(invocation -> {
+            List<LoyaltyPointsOutbox> entries = invocation.getArgument(0);
+            written.addAll(entries);
+            return new int[]{0};
+        });
+
+        claim(List.of(entry));
+        dispatcher(HttpStatus.OK, "[{\"idempotencyKey\":\"k1\",\"status\":\"APPLIED\"}]", false).dispatch();
+
+        assertEquals(1, written.size());
+        assertEquals(7L, written.get(0).getVersion());
+    }
+
+    private void claim(List<LoyaltyPointsOutbox> entries) {
+        when(outboxRepository.claimDue(any(), anyInt())).thenReturn(new ArrayList<>(entries));
+        when(outboxRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private LoyaltyPointsDispatcher dispatcher(HttpStatus status, String body) {
+        return dispatcher(status, body, true);
+    }
+
+    private LoyaltyPointsDispatcher dispatcher(HttpStatus status, String body, boolean recordWrites) {
+        if (recordWrites) {
+            when(outboxRepository.batchUpdateIfUnchanged(anyList())).thenAnswer(invocation -> {
+                List<LoyaltyPointsOutbox> entries = invocation.getArgument(0);
+                written.addAll(entries);
+                int[] counts = new int[entries.size()];
+                Arrays.fill(counts, 1);
+                return counts;
+            });
+        }
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> Mono.just(
+                ClientResponse.create(status)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()));
+        return new LoyaltyPointsDispatcher(outboxRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                webClient,
+                mock(OAuth2AuthorizedClientManager.class),
+                "http://customer-service",
+                100,
+                MAX_ATTEMPTS,
+                Duration.ofSeconds(5),
+                Duration.ofMinutes(10),
+                Duration.ofMinutes(2),
+                Duration.ofDays(7));
+    }
+
+    private static LoyaltyPointsOutbox entry(Long id, String key, int attempts) {
+        return LoyaltyPointsOutbox.builder()
+                .id(id)
+                .idempotencyKey(key)
+                .customerId(id)
+                .rewardPoints(10)
+                .tierPoints(10)
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .version(1L)
+                .build();
+    }
+}